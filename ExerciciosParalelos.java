@@ -1,508 +1,4834 @@
+package speedup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
 
 public class ExerciciosParalelos {
 
-    static class Exercicio4 {
-        
-        // Versão Sequencial
-        static class ResultadoEstatistico {
-            double media;
-            double desvioPadrao;
-            long tempo;
-            
-            ResultadoEstatistico(double media, double desvioPadrao, long tempo) {
-                this.media = media;
-                this.desvioPadrao = desvioPadrao;
-                this.tempo = tempo;
-            }
+    // Motor de execução paralela compartilhado pelos exercícios.
+    // Mantém um pool persistente de threads (ForkJoinPool), evitando criar e
+    // destruir threads a cada chamada dos kernels.
+    static class MotorParalelo implements AutoCloseable {
+
+        // Corpo de um laço paralelo: processa o intervalo [inicio, fim) do bloco
+        interface CorpoBloco {
+            void executar(int bloco, int inicio, int fim);
         }
-        
-        public static ResultadoEstatistico calcularSequencial(double[] vetor) {
-            long inicio = System.nanoTime();
-            
-            // Primeira passagem: calcular soma e média
-            double soma = 0;
-            for (double valor : vetor) {
-                soma += valor;
-            }
-            double media = soma / vetor.length;
-            
-            // Segunda passagem: calcular soma dos quadrados das diferenças
-            double somaQuadrados = 0;
-            for (double valor : vetor) {
-                double diferenca = valor - media;
-                somaQuadrados += diferenca * diferenca;
-            }
-            
-            double desvioPadrao = Math.sqrt(somaQuadrados / vetor.length);
-            long tempo = System.nanoTime() - inicio;
-            
-            return new ResultadoEstatistico(media, desvioPadrao, tempo);
+
+        // Redução de um intervalo [inicio, fim) para um valor parcial
+        interface ReducaoBloco<T> {
+            T calcular(int bloco, int inicio, int fim);
         }
-        
-        // Versão Paralela
-        public static ResultadoEstatistico calcularParalelo(double[] vetor, int numThreads) 
-                throws InterruptedException {
-            long inicio = System.nanoTime();
-            
-            int tamanhoBloco = vetor.length / numThreads;
-            Thread[] threads = new Thread[numThreads];
-            double[] somasParciais = new double[numThreads];
-            
-            // Primeira fase: calcular somas parciais para média
-            for (int i = 0; i < numThreads; i++) {
-                final int threadId = i;
-                final int inicioBloco = i * tamanhoBloco;
-                final int fimBloco = (i == numThreads - 1) ? vetor.length : (i + 1) * tamanhoBloco;
-                
-                threads[i] = new Thread(() -> {
-                    double somaParcial = 0;
-                    for (int j = inicioBloco; j < fimBloco; j++) {
-                        somaParcial += vetor[j];
-                    }
-                    somasParciais[threadId] = somaParcial;
-                });
-                threads[i].start();
-            }
-            
-            for (Thread thread : threads) {
-                thread.join();
+
+        interface ReducaoDouble {
+            double calcular(int inicio, int fim);
+        }
+
+        interface ReducaoLong {
+            long calcular(int inicio, int fim);
+        }
+
+        // Motores compartilhados por número de threads (vivem até fecharCompartilhados)
+        private static final ConcurrentHashMap<Integer, MotorParalelo> compartilhados =
+                new ConcurrentHashMap<>();
+
+        private static MotorParalelo padrao;
+
+        private final ForkJoinPool pool;
+        private final int numThreads;
+        // Ninguém escolheu o número de threads: o perfil do AutoAjuste pode reduzir o paralelismo
+        private final boolean tamanhoPadrao;
+
+        // Tamanho padrão: propriedade "motor.threads" ou número de processadores
+        MotorParalelo() {
+            this(Integer.getInteger("motor.threads", Runtime.getRuntime().availableProcessors()), true);
+        }
+
+        MotorParalelo(int numThreads) {
+            this(numThreads, false);
+        }
+
+        private MotorParalelo(int numThreads, boolean tamanhoPadrao) {
+            if (numThreads < 1) {
+                throw new IllegalArgumentException("numThreads deve ser >= 1: " + numThreads);
             }
-            
-            double somaTotal = 0;
-            for (double soma : somasParciais) {
-                somaTotal += soma;
+            this.numThreads = numThreads;
+            this.tamanhoPadrao = tamanhoPadrao;
+            this.pool = new ForkJoinPool(numThreads);
+        }
+
+        static MotorParalelo compartilhado(int numThreads) {
+            return compartilhados.computeIfAbsent(numThreads, MotorParalelo::new);
+        }
+
+        // Motor compartilhado de tamanho padrão (vive até fecharCompartilhados)
+        static synchronized MotorParalelo padrao() {
+            if (padrao == null) padrao = new MotorParalelo();
+            return padrao;
+        }
+
+        static void fecharCompartilhados() {
+            for (MotorParalelo motor : compartilhados.values()) {
+                motor.close();
             }
-            double media = somaTotal / vetor.length;
-            
-            // Segunda fase: calcular somas parciais dos quadrados das diferenças
-            double[] somasQuadradosParciais = new double[numThreads];
-            
-            for (int i = 0; i < numThreads; i++) {
-                final int threadId = i;
-                final int inicioBloco = i * tamanhoBloco;
-                final int fimBloco = (i == numThreads - 1) ? vetor.length : (i + 1) * tamanhoBloco;
-                final double mediaFinal = media;
-                
-                threads[i] = new Thread(() -> {
-                    double somaQuadradosParcial = 0;
-                    for (int j = inicioBloco; j < fimBloco; j++) {
-                        double diferenca = vetor[j] - mediaFinal;
-                        somaQuadradosParcial += diferenca * diferenca;
-                    }
-                    somasQuadradosParciais[threadId] = somaQuadradosParcial;
-                });
-                threads[i].start();
+            compartilhados.clear();
+            synchronized (MotorParalelo.class) {
+                if (padrao != null) padrao.close();
+                padrao = null;
             }
-            
-            // Aguardar conclusão
-            for (Thread thread : threads) {
-                thread.join();
+        }
+
+        int getNumThreads() {
+            return numThreads;
+        }
+
+        boolean isTamanhoPadrao() {
+            return tamanhoPadrao;
+        }
+
+        // Início do bloco b quando [inicio, fim) é dividido em numBlocos partes
+        static int limiteBloco(int inicio, int fim, int numBlocos, int b) {
+            return inicio + (int) ((long) (fim - inicio) * b / numBlocos);
+        }
+
+        // Parallel-for: divide [inicio, fim) em numBlocos blocos contíguos
+        void paraCada(int inicio, int fim, int numBlocos, CorpoBloco corpo) {
+            reduzir(inicio, fim, numBlocos, (bloco, ini, f) -> {
+                corpo.executar(bloco, ini, f);
+                return null;
+            }, (a, b) -> null);
+        }
+
+        // Parallel-reduce: resultados parciais combinados em árvore
+        <T> T reduzir(int inicio, int fim, int numBlocos, ReducaoBloco<T> reducao,
+                BinaryOperator<T> combinar) {
+            int blocos = Math.max(1, Math.min(numBlocos, fim - inicio));
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(blocos, numThreads);
+            if (medicao == null) {
+                return pool.invoke(new TarefaBlocos<>(inicio, fim, blocos, 0, blocos, reducao, combinar));
             }
-            
-            // Calcular desvio padrão total
-            double somaQuadradosTotal = 0;
-            for (double somaQuadrados : somasQuadradosParciais) {
-                somaQuadradosTotal += somaQuadrados;
+
+            long roubosAntes = pool.getStealCount();
+            long t0 = System.nanoTime();
+            ReducaoBloco<T> medida = (bloco, ini, f) -> {
+                long tb = System.nanoTime();
+                T parcial = reducao.calcular(bloco, ini, f);
+                Thread thread = Thread.currentThread();
+                int idWorker = thread instanceof ForkJoinWorkerThread
+                        ? ((ForkJoinWorkerThread) thread).getPoolIndex() : -1;
+                medicao.registrar(bloco, idWorker, tb, System.nanoTime(), f - ini);
+                return parcial;
+            };
+            try {
+                return pool.invoke(new TarefaBlocos<>(inicio, fim, blocos, 0, blocos, medida, combinar));
+            } finally {
+                medicao.roubosPool = pool.getStealCount() - roubosAntes;
+                Instrumentacao.fechar(medicao, t0, System.nanoTime());
             }
-            double desvioPadrao = Math.sqrt(somaQuadradosTotal / vetor.length);
-            
-            long tempo = System.nanoTime() - inicio;
-            return new ResultadoEstatistico(media, desvioPadrao, tempo);
         }
-        
-        public static void executar() throws InterruptedException {
-            System.out.println("=== EXERCÍCIO 4: MÉDIA E DESVIO PADRÃO ===\n");
-            
-            int[] tamanhos = {1_000_000, 5_000_000, 10_000_000};
-            int[] numThreadsList = {2, 4, 8};
-            
-            for (int tamanho : tamanhos) {
-                System.out.println("Tamanho do vetor: " + tamanho);
-                
-                // Gerar vetor aleatório
-                double[] vetor = new double[tamanho];
-                Random random = new Random(42);
-                for (int i = 0; i < tamanho; i++) {
-                    vetor[i] = random.nextDouble() * 100;
-                }
-                
-                // Versão sequencial
-                ResultadoEstatistico resSeq = calcularSequencial(vetor);
-                System.out.printf("Sequencial: Média=%.4f, Desvio=%.4f, Tempo=%.3f ms\n",
-                        resSeq.media, resSeq.desvioPadrao, resSeq.tempo / 1_000_000.0);
-                
-                // Versões paralelas
-                for (int numThreads : numThreadsList) {
-                    ResultadoEstatistico resPar = calcularParalelo(vetor, numThreads);
-                    double speedup = (double) resSeq.tempo / resPar.tempo;
-                    double eficiencia = speedup / numThreads;
-                    
-                    System.out.printf("Paralelo (%d threads): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms, " +
-                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
-                            numThreads, resPar.media, resPar.desvioPadrao, 
-                            resPar.tempo / 1_000_000.0, speedup, eficiencia * 100);
+
+        double reduzirDouble(int inicio, int fim, int numBlocos, ReducaoDouble reducao) {
+            return reduzir(inicio, fim, numBlocos,
+                    (bloco, ini, f) -> reducao.calcular(ini, f), Double::sum);
+        }
+
+        long reduzirLong(int inicio, int fim, int numBlocos, ReducaoLong reducao) {
+            return reduzir(inicio, fim, numBlocos,
+                    (bloco, ini, f) -> reducao.calcular(ini, f), Long::sum);
+        }
+
+        @Override
+        public void close() {
+            pool.shutdown();
+        }
+
+        // Divide recursivamente o intervalo de blocos [primeiro, ultimo) ao meio
+        private static class TarefaBlocos<T> extends RecursiveTask<T> {
+            private static final long serialVersionUID = 1L;
+
+            private final int inicio, fim, numBlocos, primeiro, ultimo;
+            private final ReducaoBloco<T> reducao;
+            private final BinaryOperator<T> combinar;
+
+            TarefaBlocos(int inicio, int fim, int numBlocos, int primeiro, int ultimo,
+                    ReducaoBloco<T> reducao, BinaryOperator<T> combinar) {
+                this.inicio = inicio;
+                this.fim = fim;
+                this.numBlocos = numBlocos;
+                this.primeiro = primeiro;
+                this.ultimo = ultimo;
+                this.reducao = reducao;
+                this.combinar = combinar;
+            }
+
+            @Override
+            protected T compute() {
+                if (ultimo - primeiro == 1) {
+                    return reducao.calcular(primeiro,
+                            limiteBloco(inicio, fim, numBlocos, primeiro),
+                            limiteBloco(inicio, fim, numBlocos, primeiro + 1));
                 }
-                System.out.println();
+                int meio = (primeiro + ultimo) >>> 1;
+                TarefaBlocos<T> esquerda = new TarefaBlocos<>(inicio, fim, numBlocos,
+                        primeiro, meio, reducao, combinar);
+                TarefaBlocos<T> direita = new TarefaBlocos<>(inicio, fim, numBlocos,
+                        meio, ultimo, reducao, combinar);
+                direita.fork();
+                T resultadoEsquerda = esquerda.compute();
+                return combinar.apply(resultadoEsquerda, direita.join());
             }
         }
     }
-    
-    static class Exercicio5 {
-        
-        static class ResultadoMultiplicacao {
-            double[] resultado;
-            long tempo;
-            
-            ResultadoMultiplicacao(double[] resultado, long tempo) {
-                this.resultado = resultado;
-                this.tempo = tempo;
-            }
+
+    // Escalonador de intervalos para cargas irregulares por índice.
+    // Cada worker começa com uma faixa contígua de [inicio, fim) e retira dela
+    // pedaços guiados (decrescentes: 1/FATOR_GUIADO do que resta, nunca abaixo do
+    // mínimo). Worker sem trabalho rouba a metade final da faixa de outro.
+    // Cada faixa é um par [frente, fundo) empacotado num long e alterado por CAS;
+    // faixas e acumuladores ficam em posições espaçadas (PADDING) para evitar
+    // false sharing. Uma instância executa um intervalo por vez.
+    static class EscalonadorIntervalos {
+
+        // Processa [inicio, fim) e devolve o valor parcial a acumular
+        interface CorpoIntervalo {
+            long processar(int inicio, int fim);
         }
-        
-        // Versão Sequencial
-        public static ResultadoMultiplicacao multiplicarSequencial(double[][] matriz, double[] vetor) {
-            long inicio = System.nanoTime();
-            int n = matriz.length;
-            double[] resultado = new double[n];
-            
-            for (int i = 0; i < n; i++) {
-                double soma = 0;
-                for (int j = 0; j < n; j++) {
-                    soma += matriz[i][j] * vetor[j];
+
+        static final int FATOR_GUIADO = 8;
+        // 16 longs = 128 bytes: duas linhas de cache entre posições vizinhas
+        static final int PADDING = 16;
+
+        private final MotorParalelo motor;
+        private final int numWorkers;
+        private final int tamanhoMinimo;
+        private final AtomicLongArray faixas;
+        private final long[] acumuladores;
+        private final long[] chunks;
+        private final long[] roubos;
+
+        // tamanhoMinimo <= 0: escolhido a partir do tamanho do intervalo
+        EscalonadorIntervalos(MotorParalelo motor, int tamanhoMinimo) {
+            this.motor = motor;
+            this.numWorkers = motor.getNumThreads();
+            this.tamanhoMinimo = tamanhoMinimo;
+            this.faixas = new AtomicLongArray(numWorkers * PADDING);
+            this.acumuladores = new long[numWorkers * PADDING];
+            this.chunks = new long[numWorkers * PADDING];
+            this.roubos = new long[numWorkers * PADDING];
+        }
+
+        private static long empacotar(int frente, int fundo) {
+            return ((long) frente << 32) | (fundo & 0xFFFF_FFFFL);
+        }
+
+        private static int frente(long faixa) {
+            return (int) (faixa >>> 32);
+        }
+
+        private static int fundo(long faixa) {
+            return (int) faixa;
+        }
+
+        long executar(int inicio, int fim, CorpoIntervalo corpo) {
+            int total = fim - inicio;
+            if (total <= 0) return 0;
+            int minimo = tamanhoMinimo > 0 ? tamanhoMinimo
+                    : Math.max(1, total / (numWorkers * 1024));
+
+            // Faixas guardam deslocamentos relativos a inicio (sempre >= 0)
+            for (int w = 0; w < numWorkers; w++) {
+                faixas.set(w * PADDING, empacotar(
+                        MotorParalelo.limiteBloco(0, total, numWorkers, w),
+                        MotorParalelo.limiteBloco(0, total, numWorkers, w + 1)));
+            }
+
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(numWorkers, numWorkers);
+            long t0 = medicao != null ? System.nanoTime() : 0;
+            try {
+                motor.paraCada(0, numWorkers, numWorkers, (w, ini, f) ->
+                        trabalhar(w, inicio, minimo, corpo, medicao));
+            } finally {
+                if (medicao != null) {
+                    Instrumentacao.fechar(medicao, t0, System.nanoTime());
                 }
-                resultado[i] = soma;
             }
-            
-            long tempo = System.nanoTime() - inicio;
-            return new ResultadoMultiplicacao(resultado, tempo);
+
+            long soma = 0;
+            for (int w = 0; w < numWorkers; w++) {
+                soma += acumuladores[w * PADDING];
+            }
+            return soma;
         }
-        
-        // Versão Paralela
-        public static ResultadoMultiplicacao multiplicarParalelo(double[][] matriz, double[] vetor, 
-                int numThreads) throws InterruptedException {
-            long inicio = System.nanoTime();
-            int n = matriz.length;
-            double[] resultado = new double[n];
-            
-            int linhasPorThread = n / numThreads;
-            Thread[] threads = new Thread[numThreads];
-            for (int i = 0; i < numThreads; i++) {
-                final int inicioLinha = i * linhasPorThread;
-                final int fimLinha = (i == numThreads - 1) ? n : (i + 1) * linhasPorThread;
-                
-                threads[i] = new Thread(() -> {
-                    for (int linha = inicioLinha; linha < fimLinha; linha++) {
-                        double soma = 0;
-                        for (int col = 0; col < n; col++) {
-                            soma += matriz[linha][col] * vetor[col];
-                        }
-                        resultado[linha] = soma;
+
+        private void trabalhar(int w, int base, int minimo, CorpoIntervalo corpo,
+                               Instrumentacao.Medicao medicao) {
+            long t0 = medicao != null ? System.nanoTime() : 0;
+            long acumulado = 0;
+            long numChunks = 0;
+            long numRoubos = 0;
+            long numItens = 0;
+            int slot = w * PADDING;
+
+            while (true) {
+                long faixa = faixas.get(slot);
+                int f = frente(faixa);
+                int b = fundo(faixa);
+                if (f < b) {
+                    int chunk = Math.max(minimo, (b - f) / FATOR_GUIADO);
+                    int novaFrente = Math.min(b, f + chunk);
+                    if (faixas.compareAndSet(slot, faixa, empacotar(novaFrente, b))) {
+                        acumulado += corpo.processar(base + f, base + novaFrente);
+                        numChunks++;
+                        numItens += novaFrente - f;
                     }
-                });
-                threads[i].start();
+                    continue;
+                }
+                if (!roubar(w)) break;
+                numRoubos++;
             }
-            
-            for (Thread thread : threads) {
-                thread.join();
+
+            acumuladores[slot] = acumulado;
+            chunks[slot] = numChunks;
+            roubos[slot] = numRoubos;
+            if (medicao != null) {
+                medicao.registrar(w, w, t0, System.nanoTime(), numItens);
+                medicao.contar(w, numChunks, numRoubos);
             }
-            
-            long tempo = System.nanoTime() - inicio;
-            return new ResultadoMultiplicacao(resultado, tempo);
         }
-        
-        public static void executar() throws InterruptedException {
-            System.out.println("=== EXERCÍCIO 5: MULTIPLICAÇÃO MATRIZ × VETOR ===\n");
-            
-            int[] tamanhos = {1000, 2000, 3000};
-            int[] numThreadsList = {2, 4, 8};
-            
-            for (int n : tamanhos) {
-                System.out.println("Tamanho da matriz: " + n + "×" + n);
-                
-                // Gerar matriz e vetor aleatórios
-                double[][] matriz = new double[n][n];
-                double[] vetor = new double[n];
-                Random random = new Random(42);
-                
-                for (int i = 0; i < n; i++) {
-                    for (int j = 0; j < n; j++) {
-                        matriz[i][j] = random.nextDouble();
+
+        // Move para a faixa de w a metade final da faixa de alguma vítima
+        private boolean roubar(int w) {
+            for (int k = 1; k < numWorkers; k++) {
+                int vitima = (w + k) % numWorkers;
+                int slotVitima = vitima * PADDING;
+                while (true) {
+                    long faixa = faixas.get(slotVitima);
+                    int f = frente(faixa);
+                    int b = fundo(faixa);
+                    if (f >= b) break;
+                    int meio = f + (b - f) / 2;
+                    if (faixas.compareAndSet(slotVitima, faixa, empacotar(f, meio))) {
+                        faixas.set(w * PADDING, empacotar(meio, b));
+                        return true;
                     }
-                    vetor[i] = random.nextDouble();
                 }
-                
-                // Versão sequencial
-                ResultadoMultiplicacao resSeq = multiplicarSequencial(matriz, vetor);
-                System.out.printf("Sequencial: Tempo=%.3f ms\n", resSeq.tempo / 1_000_000.0);
-                
-                // Versões paralelas
-                for (int numThreads : numThreadsList) {
-                    ResultadoMultiplicacao resPar = multiplicarParalelo(matriz, vetor, numThreads);
-                    double speedup = (double) resSeq.tempo / resPar.tempo;
-                    double eficiencia = speedup / numThreads;
-                    
-                    System.out.printf("Paralelo (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
-                            "Eficiência=%.2f%%\n",
-                            numThreads, resPar.tempo / 1_000_000.0, speedup, eficiencia * 100);
+            }
+            return false;
+        }
+
+        // Estatísticas da última execução
+        long getChunks() {
+            long total = 0;
+            for (int w = 0; w < numWorkers; w++) total += chunks[w * PADDING];
+            return total;
+        }
+
+        long getRoubos() {
+            long total = 0;
+            for (int w = 0; w < numWorkers; w++) total += roubos[w * PADDING];
+            return total;
+        }
+    }
+
+    // Instrumentação opcional dos kernels paralelos (-Dmotor.instrumentacao=true).
+    // Cada bloco registra início, fim, tempo ocupado e itens; ao fechar, os blocos são
+    // agrupados por worker e a medição calcula o desbalanceamento (ocupação máxima /
+    // média) e a fração serial de Amdahl (tempo fora da região paralela / trabalho
+    // total), publicando eventos JFR. Desativada, ATIVA é constante e os testes
+    // "medicao != null" são eliminados pelo JIT.
+    static final class Instrumentacao {
+        static final boolean ATIVA = Boolean.getBoolean("motor.instrumentacao");
+
+        // Medição aberta pela thread chamadora: kernels aninhados (o Motor dentro do
+        // EscalonadorIntervalos) não abrem outra, quem abriu registra
+        private static final ThreadLocal<Medicao> ABERTA = new ThreadLocal<>();
+        private static final ThreadLocal<Medicao> ULTIMA = new ThreadLocal<>();
+
+        private Instrumentacao() {
+        }
+
+        // null se desativada ou se já há uma medição aberta nesta thread
+        static Medicao abrir(int numBlocos, int paralelismo) {
+            if (!ATIVA || ABERTA.get() != null) return null;
+            Medicao medicao = new Medicao(nomeKernel(), numBlocos, paralelismo);
+            ABERTA.set(medicao);
+            return medicao;
+        }
+
+        static void fechar(Medicao medicao, long inicio, long fim) {
+            ABERTA.remove();
+            medicao.concluir(inicio, fim);
+            ULTIMA.set(medicao);
+        }
+
+        // Caminho de erro: libera a thread sem registrar a medição (nada se já fechada)
+        static void descartar(Medicao medicao) {
+            if (medicao != null && ABERTA.get() == medicao) ABERTA.remove();
+        }
+
+        // Pontos de start/join dos kernels com Thread: se falharem, a medição é descartada
+        static void iniciar(Thread thread, Medicao medicao) {
+            try {
+                thread.start();
+            } catch (RuntimeException | Error e) {
+                descartar(medicao);
+                throw e;
+            }
+        }
+
+        static void juntar(Thread thread, Medicao medicao) throws InterruptedException {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                descartar(medicao);
+                throw e;
+            }
+        }
+
+        // Última medição concluída pela thread chamadora
+        static Medicao ultima() {
+            return ULTIMA.get();
+        }
+
+        static void imprimirUltima() {
+            Medicao medicao = ULTIMA.get();
+            if (ATIVA && medicao != null) {
+                System.out.println(medicao.relatorio());
+                ULTIMA.remove();
+            }
+        }
+
+        // Karp-Flatt: fração serial estimada a partir do speedup medido com p threads
+        static double fracaoSerialKarpFlatt(long tempoSequencial, long tempoParalelo, int p) {
+            if (p <= 1) return 1;
+            double speedup = (double) tempoSequencial / tempoParalelo;
+            return (1 / speedup - 1.0 / p) / (1 - 1.0 / p);
+        }
+
+        // Primeiro método fora da infraestrutura (Motor, Escalonador, Instrumentação)
+        private static String nomeKernel() {
+            String prefixo = ExerciciosParalelos.class.getName() + "$";
+            return StackWalker.getInstance().walk(frames -> frames
+                    .filter(f -> !f.getClassName().startsWith(prefixo + "Instrumentacao")
+                            && !f.getClassName().startsWith(prefixo + "MotorParalelo")
+                            && !f.getClassName().startsWith(prefixo + "EscalonadorIntervalos"))
+                    .findFirst()
+                    .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('$') + 1)
+                            + "." + f.getMethodName())
+                    .orElse("desconhecido"));
+        }
+
+        static final class Medicao {
+            final String kernel;
+            final int paralelismo;
+            // Por bloco; cada posição é escrita por uma única thread de cada vez
+            private final int[] worker;
+            private final long[] inicio;
+            private final long[] fim;
+            private final long[] ocupado;
+            private final long[] itens;
+            private final long[] chunks;
+            private final long[] roubos;
+            private final EventoKernel evento = new EventoKernel();
+
+            long roubosPool;
+            long inicioTotal;
+            long tempoTotal;
+            long tempoSerial;
+            long atrasoPartida;
+            double desbalanceamento;
+            double fracaoSerial;
+            Map<Integer, long[]> porWorker;
+
+            Medicao(String kernel, int numBlocos, int paralelismo) {
+                this.kernel = kernel;
+                this.paralelismo = paralelismo;
+                worker = new int[numBlocos];
+                inicio = new long[numBlocos];
+                fim = new long[numBlocos];
+                ocupado = new long[numBlocos];
+                itens = new long[numBlocos];
+                chunks = new long[numBlocos];
+                roubos = new long[numBlocos];
+                Arrays.fill(inicio, Long.MAX_VALUE);
+                Arrays.fill(fim, Long.MIN_VALUE);
+                evento.begin();
+            }
+
+            // Acumula um trecho de trabalho do bloco (um bloco pode ter várias fases)
+            void registrar(int bloco, int idWorker, long t0, long t1, long numItens) {
+                worker[bloco] = idWorker;
+                inicio[bloco] = Math.min(inicio[bloco], t0);
+                fim[bloco] = Math.max(fim[bloco], t1);
+                ocupado[bloco] += t1 - t0;
+                itens[bloco] += numItens;
+                chunks[bloco]++;
+            }
+
+            // Contagens do escalonador: pedaços retirados e roubos bem-sucedidos
+            void contar(int bloco, long numChunks, long numRoubos) {
+                chunks[bloco] = numChunks;
+                roubos[bloco] = numRoubos;
+            }
+
+            private void concluir(long inicioTotal, long fimTotal) {
+                // Índices: início, fim, ocupado, itens, chunks, roubos
+                porWorker = new TreeMap<>();
+                long inicioParalelo = Long.MAX_VALUE;
+                long fimParalelo = Long.MIN_VALUE;
+                for (int b = 0; b < worker.length; b++) {
+                    if (fim[b] == Long.MIN_VALUE) continue;
+                    long[] w = porWorker.computeIfAbsent(worker[b],
+                            k -> new long[] {Long.MAX_VALUE, Long.MIN_VALUE, 0, 0, 0, 0});
+                    w[0] = Math.min(w[0], inicio[b]);
+                    w[1] = Math.max(w[1], fim[b]);
+                    w[2] += ocupado[b];
+                    w[3] += itens[b];
+                    w[4] += chunks[b];
+                    w[5] += roubos[b];
+                    inicioParalelo = Math.min(inicioParalelo, inicio[b]);
+                    fimParalelo = Math.max(fimParalelo, fim[b]);
+                }
+
+                this.inicioTotal = inicioTotal;
+                tempoTotal = fimTotal - inicioTotal;
+                long ocupadoTotal = 0;
+                long ocupadoMaximo = 0;
+                for (long[] w : porWorker.values()) {
+                    ocupadoTotal += w[2];
+                    ocupadoMaximo = Math.max(ocupadoMaximo, w[2]);
+                }
+                // Workers ociosos também contam na média
+                double ocupadoMedio = (double) ocupadoTotal / Math.max(paralelismo, porWorker.size());
+                desbalanceamento = ocupadoMedio > 0 ? ocupadoMaximo / ocupadoMedio : 1;
+                tempoSerial = porWorker.isEmpty() ? tempoTotal
+                        : Math.max(0, tempoTotal - (fimParalelo - inicioParalelo));
+                atrasoPartida = porWorker.isEmpty() ? 0 : inicioParalelo - inicioTotal;
+                fracaoSerial = tempoSerial + ocupadoTotal > 0
+                        ? (double) tempoSerial / (tempoSerial + ocupadoTotal) : 0;
+
+                evento.end();
+                if (evento.shouldCommit()) {
+                    evento.kernel = kernel;
+                    evento.workers = porWorker.size();
+                    evento.paralelismo = paralelismo;
+                    evento.tempoSerial = tempoSerial;
+                    evento.desbalanceamento = desbalanceamento;
+                    evento.fracaoSerial = fracaoSerial;
+                    evento.roubos = roubosPool + somaRoubos();
+                    evento.commit();
+                }
+                for (Map.Entry<Integer, long[]> entrada : porWorker.entrySet()) {
+                    EventoWorker eventoWorker = new EventoWorker();
+                    if (!eventoWorker.shouldCommit()) break;
+                    long[] w = entrada.getValue();
+                    eventoWorker.kernel = kernel;
+                    eventoWorker.worker = entrada.getKey();
+                    eventoWorker.atrasoInicio = w[0] - inicioTotal;
+                    eventoWorker.ocupado = w[2];
+                    eventoWorker.itens = w[3];
+                    eventoWorker.chunks = w[4];
+                    eventoWorker.roubos = w[5];
+                    eventoWorker.commit();
                 }
-                System.out.println();
             }
+
+            private long somaRoubos() {
+                long total = 0;
+                for (long[] w : porWorker.values()) total += w[5];
+                return total;
+            }
+
+            String relatorio() {
+                StringBuilder texto = new StringBuilder(String.format(
+                        "  [%s] Total=%.3f ms, Partida=%.3f ms, Serial=%.3f ms, Desbalanceamento=%.2f, " +
+                        "Fração serial=%.2f%%, Roubos=%d",
+                        kernel, tempoTotal / 1e6, atrasoPartida / 1e6, tempoSerial / 1e6, desbalanceamento,
+                        fracaoSerial * 100, roubosPool + somaRoubos()));
+                for (Map.Entry<Integer, long[]> entrada : porWorker.entrySet()) {
+                    long[] w = entrada.getValue();
+                    texto.append(String.format("\n    worker %d: início=+%.3f ms, fim=+%.3f ms, " +
+                            "ocupado=%.3f ms, itens=%d, chunks=%d, roubos=%d",
+                            entrada.getKey(), (w[0] - inicioTotal) / 1e6, (w[1] - inicioTotal) / 1e6,
+                            w[2] / 1e6, w[3], w[4], w[5]));
+                }
+                return texto.toString();
+            }
+        }
+
+        @Name("speedup.Kernel")
+        @Label("Kernel paralelo")
+        @Category("Speedup")
+        static class EventoKernel extends Event {
+            @Label("Kernel")
+            String kernel;
+            @Label("Workers ativos")
+            int workers;
+            @Label("Paralelismo")
+            int paralelismo;
+            @Label("Tempo serial")
+            @Timespan(Timespan.NANOSECONDS)
+            long tempoSerial;
+            @Label("Desbalanceamento")
+            double desbalanceamento;
+            @Label("Fração serial")
+            double fracaoSerial;
+            @Label("Roubos")
+            long roubos;
+        }
+
+        @Name("speedup.Worker")
+        @Label("Worker de kernel paralelo")
+        @Category("Speedup")
+        static class EventoWorker extends Event {
+            @Label("Kernel")
+            String kernel;
+            @Label("Worker")
+            int worker;
+            @Label("Atraso de início")
+            @Timespan(Timespan.NANOSECONDS)
+            long atrasoInicio;
+            @Label("Ocupado")
+            @Timespan(Timespan.NANOSECONDS)
+            long ocupado;
+            @Label("Itens")
+            long itens;
+            @Label("Chunks")
+            long chunks;
+            @Label("Roubos")
+            long roubos;
         }
     }
-    
-    static class Exercicio6 {
-        
-        static class ResultadoPrimos {
-            int count;
-            long tempo;
-            
-            ResultadoPrimos(int count, long tempo) {
-                this.count = count;
-                this.tempo = tempo;
+
+    // Auto-ajuste por máquina: mede os kernels com diferentes números de threads e
+    // granularidades e grava o perfil em disco (-Dmotor.perfil=arquivo; padrão
+    // ~/.speedup/perfil.properties; "nenhum" desativa). Os kernels consultam o perfil
+    // a cada chamada: granularidades substituem as constantes e o número de threads
+    // limita o motor recebido. O perfil só é usado no host em que foi medido.
+    static final class AutoAjuste {
+        // Mais threads só contam se reduzirem o tempo em mais de 5% (platô de banda)
+        static final double TOLERANCIA_PLATO = 0.05;
+        static final int REPETICOES = 3;
+
+        // Properties é sincronizada: leituras concorrentes dos kernels são seguras
+        private static final Properties perfil = new Properties();
+        private static volatile boolean carregado;
+
+        private AutoAjuste() {
+        }
+
+        static Path caminhoPerfil() {
+            String propriedade = System.getProperty("motor.perfil");
+            if ("nenhum".equals(propriedade)) return null;
+            return propriedade != null ? Path.of(propriedade)
+                    : Path.of(System.getProperty("user.home"), ".speedup", "perfil.properties");
+        }
+
+        private static String assinaturaHost() {
+            return Runtime.getRuntime().availableProcessors() + " processadores, heap "
+                    + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB";
+        }
+
+        private static void carregar() {
+            if (carregado) return;
+            synchronized (perfil) {
+                if (carregado) return;
+                Path caminho = caminhoPerfil();
+                if (caminho != null && Files.exists(caminho)) {
+                    Properties lido = new Properties();
+                    try (Reader leitor = Files.newBufferedReader(caminho)) {
+                        lido.load(leitor);
+                        String invalida = chaveInvalida(lido);
+                        if (!assinaturaHost().equals(lido.getProperty("host"))) {
+                            System.err.println("Perfil de ajuste de outro host ignorado: " + caminho);
+                        } else if (invalida != null) {
+                            System.err.println("Perfil de ajuste com valor inválido ignorado: " + invalida + "="
+                                    + lido.getProperty(invalida) + " em " + caminho);
+                        } else {
+                            perfil.putAll(lido);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Perfil de ajuste ilegível ignorado: " + e.getMessage());
+                    }
+                }
+                carregado = true;
             }
         }
-        
-        // Verificar se um número é primo
-        private static boolean ehPrimo(int n) {
-            if (n < 2) return false;
-            if (n == 2) return true;
-            if (n % 2 == 0) return false;
-            
-            int limite = (int) Math.sqrt(n);
-            for (int i = 3; i <= limite; i += 2) {
-                if (n % i == 0) return false;
+
+        // Todos os valores, exceto host, são inteiros positivos; null se válido
+        private static String chaveInvalida(Properties lido) {
+            for (String chave : lido.stringPropertyNames()) {
+                if (chave.equals("host")) continue;
+                try {
+                    if (Integer.parseInt(lido.getProperty(chave).trim()) < 1) return chave;
+                } catch (NumberFormatException e) {
+                    return chave;
+                }
+            }
+            return null;
+        }
+
+        static boolean temPerfil() {
+            carregar();
+            return perfil.containsKey("host");
+        }
+
+        static int inteiro(String chave, int padrao) {
+            carregar();
+            String valor = perfil.getProperty(chave);
+            return valor == null ? padrao : Integer.parseInt(valor.trim());
+        }
+
+        // Paralelismo do kernel no motor do chamador: as threads do perfil, limitadas
+        // ao motor, só quando o chamador não escolheu o tamanho (MotorParalelo.padrao())
+        static int paralelismo(String kernel, MotorParalelo motor) {
+            int threads = motor.isTamanhoPadrao() ? inteiro(kernel + ".threads", 0) : 0;
+            return threads > 0 ? Math.min(threads, motor.getNumThreads()) : motor.getNumThreads();
+        }
+
+        static void salvar() throws IOException {
+            Path caminho = caminhoPerfil();
+            if (caminho == null) return;
+            if (caminho.getParent() != null) Files.createDirectories(caminho.getParent());
+            try (Writer escritor = Files.newBufferedWriter(caminho)) {
+                perfil.store(escritor, "Perfil de ajuste dos kernels paralelos");
+            }
+        }
+
+        // Threads das tabelas de executar(): 1, 2, 4, ... até o maior valor do perfil
+        // entre os kernels dados (incluindo os próprios valores do perfil), ou até o
+        // número de processadores sem perfil
+        static int[] listaThreads(String... kernels) {
+            int maximo = 0;
+            TreeSet<Integer> lista = new TreeSet<>();
+            for (String kernel : kernels) {
+                int threads = inteiro(kernel + ".threads", 0);
+                if (threads > 0) lista.add(threads);
+                maximo = Math.max(maximo, threads);
+            }
+            for (int candidato : candidatosThreads()) {
+                if (maximo == 0 || candidato <= maximo) lista.add(candidato);
+            }
+            return lista.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // 1, 2, 4, ... até o número de processadores (incluído)
+        private static int[] candidatosThreads() {
+            int processadores = Runtime.getRuntime().availableProcessors();
+            int[] candidatos = new int[33 - Integer.numberOfLeadingZeros(processadores - 1)];
+            for (int i = 0; i < candidatos.length; i++) {
+                candidatos[i] = Math.min(1 << i, processadores);
+            }
+            return candidatos;
+        }
+
+        // Melhor de REPETICOES execuções após uma de aquecimento
+        private static long medir(Runnable kernel) {
+            kernel.run();
+            long melhor = Long.MAX_VALUE;
+            for (int r = 0; r < REPETICOES; r++) {
+                long inicio = System.nanoTime();
+                kernel.run();
+                melhor = Math.min(melhor, System.nanoTime() - inicio);
+            }
+            return melhor;
+        }
+
+        // Menor número de threads dentro da tolerância do melhor tempo
+        private static int ajustarThreads(String kernel, Function<MotorParalelo, Runnable> execucao) {
+            perfil.remove(kernel + ".threads");
+            int[] candidatos = candidatosThreads();
+            long[] tempos = new long[candidatos.length];
+            long melhor = Long.MAX_VALUE;
+            for (int i = 0; i < candidatos.length; i++) {
+                tempos[i] = medir(execucao.apply(MotorParalelo.compartilhado(candidatos[i])));
+                melhor = Math.min(melhor, tempos[i]);
+            }
+            int escolhido = candidatos[candidatos.length - 1];
+            for (int i = 0; i < candidatos.length; i++) {
+                if (tempos[i] <= melhor * (1 + TOLERANCIA_PLATO)) {
+                    escolhido = candidatos[i];
+                    break;
+                }
+            }
+            perfil.setProperty(kernel + ".threads", Integer.toString(escolhido));
+
+            StringBuilder linha = new StringBuilder(kernel + ".threads:");
+            for (int i = 0; i < candidatos.length; i++) {
+                linha.append(String.format(" %d: %.3f ms |", candidatos[i], tempos[i] / 1e6));
+            }
+            System.out.println(linha.append(" escolhido ").append(escolhido));
+            return escolhido;
+        }
+
+        private static void ajustarGranularidade(String chave, int[] candidatos, Runnable kernel) {
+            long melhor = Long.MAX_VALUE;
+            int escolhido = candidatos[0];
+            StringBuilder linha = new StringBuilder(chave + ":");
+            for (int candidato : candidatos) {
+                perfil.setProperty(chave, Integer.toString(candidato));
+                long tempo = medir(kernel);
+                linha.append(String.format(" %d: %.3f ms |", candidato, tempo / 1e6));
+                if (tempo < melhor) {
+                    melhor = tempo;
+                    escolhido = candidato;
+                }
+            }
+            perfil.setProperty(chave, Integer.toString(escolhido));
+            System.out.println(linha.append(" escolhido ").append(escolhido));
+        }
+
+        // Mede os kernels ajustáveis neste host e grava o perfil
+        static void ajustar() throws IOException {
+            carregar();
+            System.out.println("=== AUTO-AJUSTE (" + assinaturaHost() + ") ===\n");
+            perfil.setProperty("host", assinaturaHost());
+            double[] vetor = Dados.vetor(4_000_000, 100, 42);
+            ajustarThreads("exercicio4.passagemUnica",
+                    motor -> () -> Exercicio4.calcularPassagemUnica(vetor, motor));
+
+            Exercicio5.MatrizDensa matriz = Exercicio5.MatrizDensa.deJagged(Dados.matriz(2000, 2000, 42));
+            double[] x = Dados.vetor(2000, 1, 43);
+            int threadsGemv = ajustarThreads("exercicio5.gemv",
+                    motor -> () -> Exercicio5.multiplicarParalelo(matriz, x, motor));
+            ajustarGranularidade("exercicio5.gemv.linhas", new int[] {8, 32, 128, 512},
+                    () -> Exercicio5.multiplicarParalelo(matriz, x, MotorParalelo.compartilhado(threadsGemv)));
+
+            int limitePrimos = 300_000;
+            int threadsPrimos = ajustarThreads("exercicio6.dinamico",
+                    motor -> () -> Exercicio6.contarPrimosParaleloDinamico(limitePrimos, motor));
+            ajustarGranularidade("exercicio6.dinamico.bloco", new int[] {250, 1000, 4000, 16000},
+                    () -> Exercicio6.contarPrimosParaleloDinamico(limitePrimos,
+                            MotorParalelo.compartilhado(threadsPrimos)));
+
+            int tamanho = 1500;
+            int[][] pixels = Dados.imagem(tamanho, tamanho, 42);
+            Exercicio7.Imagem entrada = Exercicio7.Imagem.deMatriz(pixels);
+            Exercicio7.Imagem saida = Exercicio7.Imagem.criar(tamanho, tamanho, 1);
+            ajustarThreads("exercicio7.filtro",
+                    motor -> () -> Exercicio7.aplicarFiltroParalelo(entrada, saida, motor));
+
+            // Tile ajustado sobre blur → nitidez → limiar, com todas as threads
+            Exercicio7.PipelineFiltros pipeline = new Exercicio7.PipelineFiltros(
+                    new Exercicio7.PipelineFiltros.EstagioConvolucao(Exercicio7.KernelConvolucao.caixa(1)),
+                    new Exercicio7.PipelineFiltros.EstagioConvolucao(Exercicio7.KernelConvolucao.nitidez()),
+                    new Exercicio7.PipelineFiltros.EstagioLimiar(128));
+            MotorParalelo motorCompleto = MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+            ajustarGranularidade("exercicio7.pipeline.tile", new int[] {32, 64, 128, 176, 256},
+                    () -> pipeline.aplicarFundido(pixels, pipeline.tileParaL2(), motorCompleto));
+
+            salvar();
+            System.out.println("\nPerfil gravado em " + caminhoPerfil() + "\n");
+        }
+    }
+
+    // Geração paralela e determinística das entradas. O espaço linear de índices é
+    // dividido em blocos fixos de BLOCO elementos e cada bloco tem o próprio
+    // SplittableRandom, semeado por (semente, bloco): o conteúdo depende só da
+    // semente, nunca do número de threads. Matrizes e imagens são o mesmo fluxo
+    // lido linha a linha. Com o cache ativo (-Dmotor.dados=diretório; padrão
+    // ~/.speedup/dados; "nenhum" desativa) cada conjunto é gravado uma vez em
+    // binário little-endian e relido por mapeamento nas execuções seguintes.
+    static final class Dados {
+        static final int BLOCO = 1 << 16;
+        private static final long GAMA = 0x9E3779B97F4A7C15L;
+
+        // Cabeçalho do cache (little-endian): [magic, versão, BLOCO, semente, n, bytes/item].
+        // Mudar fluxo() ou os geradores exige incrementar VERSAO
+        static final long MAGIC = 0x5350_4544_4144_4F53L;
+        static final int VERSAO = 1;
+        static final int TAMANHO_CABECALHO = 32;
+
+        // Preenche os índices [inicio, fim) a partir do gerador do bloco
+        interface Gerador {
+            void gerar(SplittableRandom random, int inicio, int fim);
+        }
+
+        // Copia os índices [inicio, fim) de/para a região mapeada correspondente
+        interface Transferencia {
+            void transferir(ByteBuffer regiao, int inicio, int fim);
+        }
+
+        // Trecho de uma linha: quantidade elementos a partir de (linha, coluna),
+        // deslocamento elementos após o início do intervalo linear
+        interface Trecho {
+            void processar(int linha, int coluna, int deslocamento, int quantidade);
+        }
+
+        private Dados() {
+        }
+
+        // Fluxo do bloco: semente e índice misturados pelo finalizador do SplitMix64
+        static SplittableRandom fluxo(long semente, int bloco) {
+            long z = semente + (bloco + 1L) * GAMA;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return new SplittableRandom(z ^ (z >>> 31));
+        }
+
+        static void gerar(int n, long semente, MotorParalelo motor, Gerador gerador) {
+            int numBlocos = (int) (((long) n + BLOCO - 1) / BLOCO);
+            motor.paraCada(0, numBlocos, motor.getNumThreads() * 8, (b, primeiro, ultimo) -> {
+                for (int bloco = primeiro; bloco < ultimo; bloco++) {
+                    int inicio = bloco * BLOCO;
+                    gerador.gerar(fluxo(semente, bloco), inicio, (int) Math.min((long) inicio + BLOCO, n));
+                }
+            });
+        }
+
+        // Percorre [inicio, fim) de uma matriz linear com a largura dada, trecho a trecho
+        static void porLinhas(int colunas, int inicio, int fim, Trecho trecho) {
+            int linha = inicio / colunas;
+            int coluna = inicio % colunas;
+            for (int k = inicio; k < fim; linha++, coluna = 0) {
+                int quantidade = Math.min(colunas - coluna, fim - k);
+                trecho.processar(linha, coluna, k - inicio, quantidade);
+                k += quantidade;
+            }
+        }
+
+        // Vetor de nextDouble() * escala
+        static double[] vetor(int n, double escala, long semente) throws IOException {
+            MotorParalelo motor = motorPadrao();
+            double[] vetor = new double[n];
+            Path arquivo = arquivoCache("f64", n, semente);
+            if (!ler(arquivo, n, semente, Double.BYTES, motor,
+                    (regiao, inicio, fim) -> regiao.asDoubleBuffer().get(vetor, inicio, fim - inicio))) {
+                gerar(n, semente, motor, (random, inicio, fim) -> {
+                    for (int i = inicio; i < fim; i++) vetor[i] = random.nextDouble();
+                });
+                gravar(arquivo, n, semente, Double.BYTES, motor,
+                        (regiao, inicio, fim) -> regiao.asDoubleBuffer().put(vetor, inicio, fim - inicio));
+            }
+            // O cache guarda nextDouble() puro; escalar depois dá o mesmo double
+            if (escala != 1.0) {
+                motor.paraCada(0, n, motor.getNumThreads(), (b, inicio, fim) -> {
+                    for (int i = inicio; i < fim; i++) vetor[i] *= escala;
+                });
+            }
+            return vetor;
+        }
+
+        // Matriz de nextDouble(): linha i é o trecho [i * colunas, (i + 1) * colunas) de vetor()
+        static double[][] matriz(int linhas, int colunas, long semente) throws IOException {
+            MotorParalelo motor = motorPadrao();
+            int n = Math.multiplyExact(linhas, colunas);
+            double[][] matriz = new double[linhas][colunas];
+            Path arquivo = arquivoCache("f64", n, semente);
+            if (!ler(arquivo, n, semente, Double.BYTES, motor, (regiao, inicio, fim) -> {
+                DoubleBuffer valores = regiao.asDoubleBuffer();
+                porLinhas(colunas, inicio, fim, (linha, coluna, deslocamento, quantidade) ->
+                        valores.get(deslocamento, matriz[linha], coluna, quantidade));
+            })) {
+                gerar(n, semente, motor, (random, inicio, fim) ->
+                        porLinhas(colunas, inicio, fim, (linha, coluna, deslocamento, quantidade) -> {
+                            double[] valores = matriz[linha];
+                            for (int j = coluna; j < coluna + quantidade; j++) valores[j] = random.nextDouble();
+                        }));
+                gravar(arquivo, n, semente, Double.BYTES, motor, (regiao, inicio, fim) -> {
+                    DoubleBuffer valores = regiao.asDoubleBuffer();
+                    porLinhas(colunas, inicio, fim, (linha, coluna, deslocamento, quantidade) ->
+                            valores.put(deslocamento, matriz[linha], coluna, quantidade));
+                });
+            }
+            return matriz;
+        }
+
+        // Imagem de nextInt(256), guardada no cache como um byte por pixel
+        static int[][] imagem(int altura, int largura, long semente) throws IOException {
+            MotorParalelo motor = motorPadrao();
+            int n = Math.multiplyExact(altura, largura);
+            int[][] imagem = new int[altura][largura];
+            Path arquivo = arquivoCache("u8", n, semente);
+            if (!ler(arquivo, n, semente, Byte.BYTES, motor, (regiao, inicio, fim) ->
+                    porLinhas(largura, inicio, fim, (linha, coluna, deslocamento, quantidade) -> {
+                        int[] pixels = imagem[linha];
+                        for (int j = 0; j < quantidade; j++) {
+                            pixels[coluna + j] = regiao.get(deslocamento + j) & 0xFF;
+                        }
+                    }))) {
+                gerar(n, semente, motor, (random, inicio, fim) ->
+                        porLinhas(largura, inicio, fim, (linha, coluna, deslocamento, quantidade) -> {
+                            int[] pixels = imagem[linha];
+                            for (int j = coluna; j < coluna + quantidade; j++) pixels[j] = random.nextInt(256);
+                        }));
+                gravar(arquivo, n, semente, Byte.BYTES, motor, (regiao, inicio, fim) ->
+                        porLinhas(largura, inicio, fim, (linha, coluna, deslocamento, quantidade) -> {
+                            int[] pixels = imagem[linha];
+                            for (int j = 0; j < quantidade; j++) {
+                                regiao.put(deslocamento + j, (byte) pixels[coluna + j]);
+                            }
+                        }));
+            }
+            return imagem;
+        }
+
+        static Path diretorioCache() {
+            String propriedade = System.getProperty("motor.dados");
+            if ("nenhum".equals(propriedade)) return null;
+            return propriedade != null ? Path.of(propriedade)
+                    : Path.of(System.getProperty("user.home"), ".speedup", "dados");
+        }
+
+        private static MotorParalelo motorPadrao() {
+            return MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+        }
+
+        // Conjuntos com o mesmo tipo, tamanho e semente têm o mesmo conteúdo
+        private static Path arquivoCache(String tipo, int n, long semente) {
+            Path diretorio = diretorioCache();
+            return diretorio == null ? null : diretorio.resolve(tipo + "-" + n + "-" + semente + ".bin");
+        }
+
+        private static ByteBuffer cabecalho(int n, long semente, int bytesPorItem) {
+            return ByteBuffer.allocate(TAMANHO_CABECALHO).order(ByteOrder.LITTLE_ENDIAN)
+                    .putLong(MAGIC).putInt(VERSAO).putInt(BLOCO)
+                    .putLong(semente).putInt(n).putInt(bytesPorItem).flip();
+        }
+
+        // Lê o conjunto do cache; false se ausente, de tamanho diferente ou com
+        // cabeçalho diferente (outra versão do gerador): o chamador regenera e regrava
+        private static boolean ler(Path arquivo, int n, long semente, int bytesPorItem, MotorParalelo motor,
+                Transferencia transferencia) throws IOException {
+            if (arquivo == null || !Files.isRegularFile(arquivo)
+                    || Files.size(arquivo) != TAMANHO_CABECALHO + (long) n * bytesPorItem) {
+                return false;
+            }
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                ByteBuffer lido = ByteBuffer.allocate(TAMANHO_CABECALHO);
+                while (lido.hasRemaining()) {
+                    if (canal.read(lido, lido.position()) < 0) return false;
+                }
+                if (!lido.flip().equals(cabecalho(n, semente, bytesPorItem))) return false;
+                mapearEmBlocos(canal, FileChannel.MapMode.READ_ONLY, n, bytesPorItem, motor, transferencia);
             }
             return true;
         }
+
+        // Grava num temporário e renomeia: um leitor nunca vê o arquivo pela metade
+        private static void gravar(Path arquivo, int n, long semente, int bytesPorItem, MotorParalelo motor,
+                Transferencia transferencia) throws IOException {
+            if (arquivo == null) return;
+            Files.createDirectories(arquivo.getParent());
+            Path temporario = Files.createTempFile(arquivo.getParent(), arquivo.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    ByteBuffer cabecalho = cabecalho(n, semente, bytesPorItem);
+                    while (cabecalho.hasRemaining()) {
+                        canal.write(cabecalho, cabecalho.position());
+                    }
+                    if (n > 0) canal.write(ByteBuffer.allocate(1), TAMANHO_CABECALHO + (long) n * bytesPorItem - 1);
+                    mapearEmBlocos(canal, FileChannel.MapMode.READ_WRITE, n, bytesPorItem, motor, transferencia);
+                }
+                Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        }
+
+        // Cada bloco do motor mapeia a própria região (no máximo ~1 GB por mapeamento)
+        private static void mapearEmBlocos(FileChannel canal, FileChannel.MapMode modo, int n, int bytesPorItem,
+                MotorParalelo motor, Transferencia transferencia) throws IOException {
+            int numBlocos = (int) Math.max(motor.getNumThreads() * 4L, (long) n * bytesPorItem / (1 << 30) + 1);
+            try {
+                motor.paraCada(0, n, numBlocos, (b, inicio, fim) -> {
+                    try {
+                        MappedByteBuffer regiao = canal.map(modo, TAMANHO_CABECALHO + (long) inicio * bytesPorItem,
+                                (long) (fim - inicio) * bytesPorItem);
+                        transferencia.transferir(regiao.order(ByteOrder.LITTLE_ENDIAN), inicio, fim);
+                        if (modo == FileChannel.MapMode.READ_WRITE) regiao.force();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Resultado comum dos kernels: tempo de execução em nanossegundos; cada
+    // exercício acrescenta os próprios campos (média, vetor, contagem, imagem...)
+    static class Resultado {
+        long tempo;
+
+        Resultado(long tempo) {
+            this.tempo = tempo;
+        }
+    }
+
+    // Kernel executável sobre um motor. Pedidos com a mesma chaveLote (não nula)
+    // podem ser agrupados pelo ServicoKernels e executados juntos por executarLote.
+    interface Kernel<E, R extends Resultado> {
+        R executar(E entrada, MotorParalelo motor);
+
+        default Object chaveLote(E entrada) {
+            return null;
+        }
+
+        // Um resultado por entrada, na mesma ordem; por padrão executa uma a uma
+        default List<R> executarLote(List<E> entradas, MotorParalelo motor) {
+            List<R> resultados = new ArrayList<>(entradas.size());
+            for (E entrada : entradas) {
+                resultados.add(executar(entrada, motor));
+            }
+            return resultados;
+        }
+    }
+
+    // Núcleos opcionais do módulo vetorial (Vector API), carregados por reflexão.
+    // Só existem se a classe estiver no classpath e a JVM rodar com --add-modules
+    // jdk.incubator.vector; -Dmotor.vetorial=nenhum força os laços escalares. Um
+    // núcleo só é aceito se reproduzir o escalar bit a bit numa amostra.
+    static final class NucleoVetorial {
+        // true se o núcleo coincide com o escalar nos primeiros fim itens da amostra
+        interface Conferencia<T> {
+            boolean confere(T nucleo, double[] amostra, int fim);
+        }
+
+        private NucleoVetorial() {
+        }
+
+        static <T> T carregar(String classe, Class<T> tipo, Conferencia<T> conferencia) {
+            if ("nenhum".equals(System.getProperty("motor.vetorial"))) return null;
+            try {
+                T nucleo = tipo.cast(Class.forName(classe).getDeclaredConstructor().newInstance());
+                double[] amostra = new double[37];
+                for (int i = 0; i < amostra.length; i++) amostra[i] = Math.scalb(Math.sin(i), (i * 7) % 61 - 30);
+                for (int fim = 0; fim <= amostra.length; fim++) {
+                    if (!conferencia.confere(nucleo, amostra, fim)) return null;
+                }
+                return nucleo;
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    static class Exercicio4 {
         
         // Versão Sequencial
-        public static ResultadoPrimos contarPrimosSequencial(int n) {
+        static class ResultadoEstatistico extends Resultado {
+            double media;
+            double desvioPadrao;
+            
+            ResultadoEstatistico(double media, double desvioPadrao, long tempo) {
+                super(tempo);
+                this.media = media;
+                this.desvioPadrao = desvioPadrao;
+            }
+        }
+        
+        public static ResultadoEstatistico calcularSequencial(double[] vetor) {
             long inicio = System.nanoTime();
-            int count = 0;
             
-            for (int i = 1; i <= n; i++) {
-                if (ehPrimo(i)) count++;
+            // Primeira passagem: calcular soma e média
+            double soma = 0;
+            for (double valor : vetor) {
+                soma += valor;
+            }
+            double media = soma / vetor.length;
+            
+            // Segunda passagem: calcular soma dos quadrados das diferenças
+            double somaQuadrados = 0;
+            for (double valor : vetor) {
+                double diferenca = valor - media;
+                somaQuadrados += diferenca * diferenca;
             }
             
+            double desvioPadrao = Math.sqrt(somaQuadrados / vetor.length);
             long tempo = System.nanoTime() - inicio;
-            return new ResultadoPrimos(count, tempo);
+            
+            return new ResultadoEstatistico(media, desvioPadrao, tempo);
         }
         
-        // Versão Paralela - Partição Estática
-        public static ResultadoPrimos contarPrimosParaleloEstatico(int n, int numThreads) 
+        // Versão Paralela
+        public static ResultadoEstatistico calcularParalelo(double[] vetor, int numThreads) 
                 throws InterruptedException {
             long inicio = System.nanoTime();
-            int[] countsParciais = new int[numThreads];
-            Thread[] threads = new Thread[numThreads];
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(numThreads, numThreads);
             
-            int numeroPorThread = n / numThreads;
+            int tamanhoBloco = vetor.length / numThreads;
+            Thread[] threads = new Thread[numThreads];
+            double[] somasParciais = new double[numThreads];
             
+            // Primeira fase: calcular somas parciais para média
             for (int i = 0; i < numThreads; i++) {
                 final int threadId = i;
-                final int inicioRange = i * numeroPorThread + 1;
-                final int fimRange = (i == numThreads - 1) ? n : (i + 1) * numeroPorThread;
+                final int inicioBloco = i * tamanhoBloco;
+                final int fimBloco = (i == numThreads - 1) ? vetor.length : (i + 1) * tamanhoBloco;
                 
                 threads[i] = new Thread(() -> {
-                    int countParcial = 0;
-                    for (int num = inicioRange; num <= fimRange; num++) {
-                        if (ehPrimo(num)) countParcial++;
+                    long t0 = medicao != null ? System.nanoTime() : 0;
+                    double somaParcial = 0;
+                    for (int j = inicioBloco; j < fimBloco; j++) {
+                        somaParcial += vetor[j];
                     }
-                    countsParciais[threadId] = countParcial;
+                    somasParciais[threadId] = somaParcial;
+                    if (medicao != null) medicao.registrar(threadId, threadId, t0, System.nanoTime(), fimBloco - inicioBloco);
                 });
-                threads[i].start();
+                Instrumentacao.iniciar(threads[i], medicao);
             }
             
             for (Thread thread : threads) {
-                thread.join();
+                Instrumentacao.juntar(thread, medicao);
             }
             
-            int countTotal = 0;
-            for (int count : countsParciais) {
-                countTotal += count;
+            double somaTotal = 0;
+            for (double soma : somasParciais) {
+                somaTotal += soma;
             }
+            double media = somaTotal / vetor.length;
             
-            long tempo = System.nanoTime() - inicio;
-            return new ResultadoPrimos(countTotal, tempo);
-        }
-        
-        // Versão Paralela - Partição Dinâmica
-        public static ResultadoPrimos contarPrimosParaleloDinamico(int n, int numThreads) 
-                throws InterruptedException {
-            long inicio = System.nanoTime();
-            AtomicInteger proximoNumero = new AtomicInteger(1);
-            AtomicInteger countTotal = new AtomicInteger(0);
-            Thread[] threads = new Thread[numThreads];
-            
-            int tamanhoBloco = 1000;
+            // Segunda fase: calcular somas parciais dos quadrados das diferenças
+            double[] somasQuadradosParciais = new double[numThreads];
             
             for (int i = 0; i < numThreads; i++) {
+                final int threadId = i;
+                final int inicioBloco = i * tamanhoBloco;
+                final int fimBloco = (i == numThreads - 1) ? vetor.length : (i + 1) * tamanhoBloco;
+                final double mediaFinal = media;
+                
                 threads[i] = new Thread(() -> {
-                    while (true) {
-                        int inicio_bloco = proximoNumero.getAndAdd(tamanhoBloco);
-                        if (inicio_bloco > n) break;
-                        
-                        int fim_bloco = Math.min(inicio_bloco + tamanhoBloco - 1, n);
-                        int countLocal = 0;
-                        
-                        for (int num = inicio_bloco; num <= fim_bloco; num++) {
-                            if (ehPrimo(num)) countLocal++;
-                        }
-                        
-                        countTotal.addAndGet(countLocal);
+                    long t0 = medicao != null ? System.nanoTime() : 0;
+                    double somaQuadradosParcial = 0;
+                    for (int j = inicioBloco; j < fimBloco; j++) {
+                        double diferenca = vetor[j] - mediaFinal;
+                        somaQuadradosParcial += diferenca * diferenca;
                     }
+                    somasQuadradosParciais[threadId] = somaQuadradosParcial;
+                    if (medicao != null) medicao.registrar(threadId, threadId, t0, System.nanoTime(), fimBloco - inicioBloco);
                 });
-                threads[i].start();
+                Instrumentacao.iniciar(threads[i], medicao);
             }
             
+            // Aguardar conclusão
             for (Thread thread : threads) {
-                thread.join();
+                Instrumentacao.juntar(thread, medicao);
+            }
+            
+            // Calcular desvio padrão total
+            double somaQuadradosTotal = 0;
+            for (double somaQuadrados : somasQuadradosParciais) {
+                somaQuadradosTotal += somaQuadrados;
             }
+            double desvioPadrao = Math.sqrt(somaQuadradosTotal / vetor.length);
             
             long tempo = System.nanoTime() - inicio;
-            return new ResultadoPrimos(countTotal.get(), tempo);
+            if (medicao != null) Instrumentacao.fechar(medicao, inicio, inicio + tempo);
+            return new ResultadoEstatistico(media, desvioPadrao, tempo);
         }
-        
-        public static void executar() throws InterruptedException {
-            System.out.println("=== EXERCÍCIO 6: CONTAGEM DE NÚMEROS PRIMOS ===\n");
-            
-            int[] limites = {100_000, 500_000, 1_000_000};
-            int[] numThreadsList = {2, 4, 8};
-            
-            for (int limite : limites) {
-                System.out.println("Limite: " + limite);
-                
-                // Versão sequencial
-                ResultadoPrimos resSeq = contarPrimosSequencial(limite);
-                System.out.printf("Sequencial: Count=%d, Tempo=%.3f ms\n",
-                        resSeq.count, resSeq.tempo / 1_000_000.0);
-                
-                // Versões paralelas
-                for (int numThreads : numThreadsList) {
-                    ResultadoPrimos resEstatico = contarPrimosParaleloEstatico(limite, numThreads);
-                    double speedupEstatico = (double) resSeq.tempo / resEstatico.tempo;
-                    double eficienciaEstatico = speedupEstatico / numThreads;
-                    
-                    System.out.printf("Paralelo Estático (%d threads): Count=%d, Tempo=%.3f ms, " +
-                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
-                            numThreads, resEstatico.count, resEstatico.tempo / 1_000_000.0, 
-                            speedupEstatico, eficienciaEstatico * 100);
-                    
-                    ResultadoPrimos resDinamico = contarPrimosParaleloDinamico(limite, numThreads);
-                    double speedupDinamico = (double) resSeq.tempo / resDinamico.tempo;
-                    double eficienciaDinamico = speedupDinamico / numThreads;
-                    
-                    System.out.printf("Paralelo Dinâmico (%d threads): Count=%d, Tempo=%.3f ms, " +
-                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
-                            numThreads, resDinamico.count, resDinamico.tempo / 1_000_000.0, 
-                            speedupDinamico, eficienciaDinamico * 100);
+
+        // Versão Paralela - Motor persistente
+        public static ResultadoEstatistico calcularParalelo(double[] vetor, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int numBlocos = motor.getNumThreads();
+
+            // Primeira fase: soma
+            double somaTotal = motor.reduzirDouble(0, vetor.length, numBlocos, (ini, fim) -> {
+                double somaParcial = 0;
+                for (int j = ini; j < fim; j++) {
+                    somaParcial += vetor[j];
                 }
-                System.out.println();
+                return somaParcial;
+            });
+            double media = somaTotal / vetor.length;
+
+            // Segunda fase: soma dos quadrados das diferenças
+            double somaQuadradosTotal = motor.reduzirDouble(0, vetor.length, numBlocos, (ini, fim) -> {
+                double somaQuadradosParcial = 0;
+                for (int j = ini; j < fim; j++) {
+                    double diferenca = vetor[j] - media;
+                    somaQuadradosParcial += diferenca * diferenca;
+                }
+                return somaQuadradosParcial;
+            });
+            double desvioPadrao = Math.sqrt(somaQuadradosTotal / vetor.length);
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoEstatistico(media, desvioPadrao, tempo);
+        }
+
+        // Somas compensadas (Kahan) com 4 acumuladores independentes: quebra a
+        // dependência serial entre as adições (ILP) e mantém o erro de
+        // arredondamento independente do tamanho do vetor. Os blocos têm tamanho
+        // fixo e são combinados sempre na mesma árvore, então o resultado é
+        // idêntico bit a bit para qualquer número de threads.
+        static class SomaCompensada {
+            static final int TAMANHO_BLOCO = 1 << 16;
+
+            // Implementado por SomaCompensadaVetorial (módulo vetorial, Vector API)
+            interface Nucleo {
+                double somar(double[] vetor, int inicio, int fim);
+
+                double somarQuadradosDesvios(double[] vetor, int inicio, int fim, double media);
+            }
+
+            private static final Nucleo VETORIAL = NucleoVetorial.carregar("speedup.SomaCompensadaVetorial",
+                    Nucleo.class, (nucleo, amostra, fim) ->
+                            Double.compare(nucleo.somar(amostra, 0, fim), somarEscalar(amostra, 0, fim)) == 0
+                            && Double.compare(nucleo.somarQuadradosDesvios(amostra, 0, fim, 0.5),
+                                    somarQuadradosDesviosEscalar(amostra, 0, fim, 0.5)) == 0);
+
+            static String nomeNucleo() {
+                return VETORIAL != null ? "vetorial (Vector API, 4 pistas)" : "escalar (4 acumuladores)";
+            }
+
+            static int numBlocos(int n) {
+                return Math.max(1, (n + TAMANHO_BLOCO - 1) / TAMANHO_BLOCO);
+            }
+
+            static double somar(double[] vetor, int inicio, int fim) {
+                return VETORIAL != null ? VETORIAL.somar(vetor, inicio, fim) : somarEscalar(vetor, inicio, fim);
+            }
+
+            static double somarQuadradosDesvios(double[] vetor, int inicio, int fim, double media) {
+                return VETORIAL != null
+                        ? VETORIAL.somarQuadradosDesvios(vetor, inicio, fim, media)
+                        : somarQuadradosDesviosEscalar(vetor, inicio, fim, media);
+            }
+
+            static double somarEscalar(double[] vetor, int inicio, int fim) {
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                double c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+                int j = inicio;
+                for (; j + 3 < fim; j += 4) {
+                    double y0 = vetor[j] - c0;
+                    double y1 = vetor[j + 1] - c1;
+                    double y2 = vetor[j + 2] - c2;
+                    double y3 = vetor[j + 3] - c3;
+                    double t0 = s0 + y0;
+                    double t1 = s1 + y1;
+                    double t2 = s2 + y2;
+                    double t3 = s3 + y3;
+                    c0 = (t0 - s0) - y0;
+                    c1 = (t1 - s1) - y1;
+                    c2 = (t2 - s2) - y2;
+                    c3 = (t3 - s3) - y3;
+                    s0 = t0;
+                    s1 = t1;
+                    s2 = t2;
+                    s3 = t3;
+                }
+                for (; j < fim; j++) {
+                    double y0 = vetor[j] - c0;
+                    double t0 = s0 + y0;
+                    c0 = (t0 - s0) - y0;
+                    s0 = t0;
+                }
+                return ((s0 - c0) + (s1 - c1)) + ((s2 - c2) + (s3 - c3));
+            }
+
+            static double somarQuadradosDesviosEscalar(double[] vetor, int inicio, int fim, double media) {
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                double c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+                int j = inicio;
+                for (; j + 3 < fim; j += 4) {
+                    double d0 = vetor[j] - media;
+                    double d1 = vetor[j + 1] - media;
+                    double d2 = vetor[j + 2] - media;
+                    double d3 = vetor[j + 3] - media;
+                    double y0 = d0 * d0 - c0;
+                    double y1 = d1 * d1 - c1;
+                    double y2 = d2 * d2 - c2;
+                    double y3 = d3 * d3 - c3;
+                    double t0 = s0 + y0;
+                    double t1 = s1 + y1;
+                    double t2 = s2 + y2;
+                    double t3 = s3 + y3;
+                    c0 = (t0 - s0) - y0;
+                    c1 = (t1 - s1) - y1;
+                    c2 = (t2 - s2) - y2;
+                    c3 = (t3 - s3) - y3;
+                    s0 = t0;
+                    s1 = t1;
+                    s2 = t2;
+                    s3 = t3;
+                }
+                for (; j < fim; j++) {
+                    double d0 = vetor[j] - media;
+                    double y0 = d0 * d0 - c0;
+                    double t0 = s0 + y0;
+                    c0 = (t0 - s0) - y0;
+                    s0 = t0;
+                }
+                return ((s0 - c0) + (s1 - c1)) + ((s2 - c2) + (s3 - c3));
+            }
+
+            // Soma pareada na mesma árvore usada por MotorParalelo.reduzir
+            static double combinarEmArvore(double[] parciais, int primeiro, int ultimo) {
+                if (ultimo - primeiro == 1) return parciais[primeiro];
+                int meio = (primeiro + ultimo) >>> 1;
+                return combinarEmArvore(parciais, primeiro, meio) + combinarEmArvore(parciais, meio, ultimo);
             }
         }
-    }
-    
-    static class Exercicio7 {
-        
-        static class ResultadoFiltro {
-            int[][] imagemSaida;
-            long tempo;
-            
-            ResultadoFiltro(int[][] imagemSaida, long tempo) {
-                this.imagemSaida = imagemSaida;
-                this.tempo = tempo;
+
+        // Versão Sequencial - Soma compensada
+        public static ResultadoEstatistico calcularSequencialCompensado(double[] vetor) {
+            long inicio = System.nanoTime();
+            int n = vetor.length;
+            int numBlocos = SomaCompensada.numBlocos(n);
+            double[] parciais = new double[numBlocos];
+
+            for (int b = 0; b < numBlocos; b++) {
+                parciais[b] = SomaCompensada.somar(vetor,
+                        MotorParalelo.limiteBloco(0, n, numBlocos, b),
+                        MotorParalelo.limiteBloco(0, n, numBlocos, b + 1));
             }
+            double media = SomaCompensada.combinarEmArvore(parciais, 0, numBlocos) / n;
+
+            for (int b = 0; b < numBlocos; b++) {
+                parciais[b] = SomaCompensada.somarQuadradosDesvios(vetor,
+                        MotorParalelo.limiteBloco(0, n, numBlocos, b),
+                        MotorParalelo.limiteBloco(0, n, numBlocos, b + 1), media);
+            }
+            double desvioPadrao = Math.sqrt(SomaCompensada.combinarEmArvore(parciais, 0, numBlocos) / n);
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoEstatistico(media, desvioPadrao, tempo);
         }
-        
-        // Aplicar blur 3x3 em uma posição
-        private static int aplicarBlur(int[][] imagem, int i, int j) {
-            int soma = 0;
-            int count = 0;
-            
-            for (int di = -1; di <= 1; di++) {
-                for (int dj = -1; dj <= 1; dj++) {
-                    int ni = i + di;
-                    int nj = j + dj;
-                    
-                    if (ni >= 0 && ni < imagem.length && nj >= 0 && nj < imagem[0].length) {
-                        soma += imagem[ni][nj];
-                        count++;
+
+        // Versão Paralela - Soma compensada (mesmo resultado da versão sequencial compensada)
+        public static ResultadoEstatistico calcularParaleloCompensado(double[] vetor, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int numBlocos = SomaCompensada.numBlocos(vetor.length);
+
+            double somaTotal = motor.reduzirDouble(0, vetor.length, numBlocos,
+                    (ini, fim) -> SomaCompensada.somar(vetor, ini, fim));
+            double media = somaTotal / vetor.length;
+
+            double somaQuadradosTotal = motor.reduzirDouble(0, vetor.length, numBlocos,
+                    (ini, fim) -> SomaCompensada.somarQuadradosDesvios(vetor, ini, fim, media));
+            double desvioPadrao = Math.sqrt(somaQuadradosTotal / vetor.length);
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoEstatistico(media, desvioPadrao, tempo);
+        }
+
+        // Resultado da passagem única: acrescenta extremos e momentos de 3ª/4ª ordem
+        static class ResultadoMomentos extends ResultadoEstatistico {
+            double minimo;
+            double maximo;
+            double assimetria;
+            double curtose;
+
+            ResultadoMomentos(EstadoMomentos estado, long tempo) {
+                super(estado.media, estado.desvioPadrao(), tempo);
+                this.minimo = estado.minimo;
+                this.maximo = estado.maximo;
+                this.assimetria = estado.assimetria();
+                this.curtose = estado.curtose();
+            }
+        }
+
+        // Estado parcial combinável: contagem, média e somas centrais M2, M3, M4
+        // (Welford / Chan et al. / Pébay). Dois estados de blocos disjuntos
+        // combinam-se sem reler os dados.
+        static class EstadoMomentos {
+            // Sub-blocos cabem no L1: a segunda leitura do sub-bloco não vai à memória
+            static final int TAMANHO_SUBBLOCO = 2048;
+
+            long n;
+            double media;
+            double m2, m3, m4;
+            double minimo = Double.POSITIVE_INFINITY;
+            double maximo = Double.NEGATIVE_INFINITY;
+
+            EstadoMomentos() {
+            }
+
+            private EstadoMomentos(long n, double media, double m2, double m3, double m4,
+                    double minimo, double maximo) {
+                this.n = n;
+                this.media = media;
+                this.m2 = m2;
+                this.m3 = m3;
+                this.m4 = m4;
+                this.minimo = minimo;
+                this.maximo = maximo;
+            }
+
+            // Acumula [inicio, fim) lendo cada sub-bloco da memória uma única vez
+            static EstadoMomentos deIntervalo(double[] vetor, int inicio, int fim) {
+                EstadoMomentos estado = new EstadoMomentos();
+                for (int ini = inicio; ini < fim; ini += TAMANHO_SUBBLOCO) {
+                    estado.combinar(deSubbloco(vetor, ini, Math.min(ini + TAMANHO_SUBBLOCO, fim)));
+                }
+                return estado;
+            }
+
+            // Mesmo cálculo sobre um buffer (ex.: arquivo mapeado), sem cópia para o heap
+            static EstadoMomentos deIntervalo(DoubleBuffer buffer, int inicio, int fim) {
+                EstadoMomentos estado = new EstadoMomentos();
+                for (int ini = inicio; ini < fim; ini += TAMANHO_SUBBLOCO) {
+                    estado.combinar(deSubbloco(buffer, ini, Math.min(ini + TAMANHO_SUBBLOCO, fim)));
+                }
+                return estado;
+            }
+
+            private static EstadoMomentos deSubbloco(DoubleBuffer buffer, int inicio, int fim) {
+                double soma = 0;
+                double minimo = Double.POSITIVE_INFINITY;
+                double maximo = Double.NEGATIVE_INFINITY;
+                for (int j = inicio; j < fim; j++) {
+                    double valor = buffer.get(j);
+                    soma += valor;
+                    minimo = Math.min(minimo, valor);
+                    maximo = Math.max(maximo, valor);
+                }
+                double media = soma / (fim - inicio);
+
+                double m2 = 0, m3 = 0, m4 = 0;
+                for (int j = inicio; j < fim; j++) {
+                    double d = buffer.get(j) - media;
+                    double d2 = d * d;
+                    m2 += d2;
+                    m3 += d2 * d;
+                    m4 += d2 * d2;
+                }
+                return new EstadoMomentos(fim - inicio, media, m2, m3, m4, minimo, maximo);
+            }
+
+            private static EstadoMomentos deSubbloco(double[] vetor, int inicio, int fim) {
+                double soma = 0;
+                double minimo = Double.POSITIVE_INFINITY;
+                double maximo = Double.NEGATIVE_INFINITY;
+                for (int j = inicio; j < fim; j++) {
+                    double valor = vetor[j];
+                    soma += valor;
+                    minimo = Math.min(minimo, valor);
+                    maximo = Math.max(maximo, valor);
+                }
+                double media = soma / (fim - inicio);
+
+                double m2 = 0, m3 = 0, m4 = 0;
+                for (int j = inicio; j < fim; j++) {
+                    double d = vetor[j] - media;
+                    double d2 = d * d;
+                    m2 += d2;
+                    m3 += d2 * d;
+                    m4 += d2 * d2;
+                }
+                return new EstadoMomentos(fim - inicio, media, m2, m3, m4, minimo, maximo);
+            }
+
+            // Incorpora o estado de outro bloco (fórmulas de combinação pareada)
+            EstadoMomentos combinar(EstadoMomentos outro) {
+                if (outro.n == 0) return this;
+                if (n == 0) {
+                    n = outro.n;
+                    media = outro.media;
+                    m2 = outro.m2;
+                    m3 = outro.m3;
+                    m4 = outro.m4;
+                    minimo = outro.minimo;
+                    maximo = outro.maximo;
+                    return this;
+                }
+
+                double na = n, nb = outro.n, total = na + nb;
+                double delta = outro.media - media;
+                double delta2 = delta * delta;
+                double fator = na * nb / total;
+
+                double novoM4 = m4 + outro.m4
+                        + delta2 * delta2 * fator * (na * na - na * nb + nb * nb) / (total * total)
+                        + 6 * delta2 * (na * na * outro.m2 + nb * nb * m2) / (total * total)
+                        + 4 * delta * (na * outro.m3 - nb * m3) / total;
+                double novoM3 = m3 + outro.m3
+                        + delta2 * delta * fator * (na - nb) / total
+                        + 3 * delta * (na * outro.m2 - nb * m2) / total;
+                double novoM2 = m2 + outro.m2 + delta2 * fator;
+
+                n += outro.n;
+                media += delta * nb / total;
+                m2 = novoM2;
+                m3 = novoM3;
+                m4 = novoM4;
+                minimo = Math.min(minimo, outro.minimo);
+                maximo = Math.max(maximo, outro.maximo);
+                return this;
+            }
+
+            // Desvio padrão populacional (mesma definição de calcularSequencial)
+            double desvioPadrao() {
+                return Math.sqrt(m2 / n);
+            }
+
+            // Assimetria populacional g1
+            double assimetria() {
+                return m2 == 0 ? 0 : Math.sqrt((double) n) * m3 / Math.pow(m2, 1.5);
+            }
+
+            // Curtose em excesso g2 (0 para a distribuição normal)
+            double curtose() {
+                return m2 == 0 ? 0 : n * m4 / (m2 * m2) - 3;
+            }
+        }
+
+        // Versão Sequencial - Passagem única
+        public static ResultadoMomentos calcularPassagemUnica(double[] vetor) {
+            long inicio = System.nanoTime();
+            EstadoMomentos estado = EstadoMomentos.deIntervalo(vetor, 0, vetor.length);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMomentos(estado, tempo);
+        }
+
+        // Versão Paralela - Passagem única: cada bloco produz um EstadoMomentos
+        // e o motor combina os estados parciais em árvore (sem barreira entre fases).
+        // Média e desvio coincidem com calcularSequencial dentro de erro relativo 1e-12.
+        public static ResultadoMomentos calcularPassagemUnica(double[] vetor, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int paralelismo = AutoAjuste.paralelismo("exercicio4.passagemUnica", motor);
+            EstadoMomentos estado = motor.reduzir(0, vetor.length, paralelismo,
+                    (bloco, ini, fim) -> EstadoMomentos.deIntervalo(vetor, ini, fim),
+                    EstadoMomentos::combinar);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMomentos(estado, tempo);
+        }
+
+        // Esboço KLL de quantis (Karnin, Lang e Liberty): níveis de compactadores em
+        // que cada item do nível h representa 2^h valores. Quando o total passa da
+        // capacidade, o nível mais baixo cheio é ordenado e metade dos itens (pares ou
+        // ímpares, ao acaso) sobe um nível. A capacidade do nível h é k·(2/3)^(H-1-h),
+        // então a memória é O(k) itens e não depende de n (erro de posto ~0,2% com k=400).
+        // Os níveis acima do 0 ficam sempre ordenados: promover e combinar são intercalações.
+        static class EsbocoKLL {
+            static final int K_PADRAO = 400;
+            private static final double FATOR_CAPACIDADE = 2.0 / 3.0;
+
+            private final int k;
+            private final SplittableRandom random;
+            private double[][] niveis = new double[1][8];
+            private int[] tamanhos = new int[1];
+            private int[] capacidades = new int[1];
+            private int tamanhoTotal;
+            private int tamanhoMaximo;
+            private long n;
+
+            EsbocoKLL(int k, long semente) {
+                if (k < 8) {
+                    throw new IllegalArgumentException("k deve ser >= 8: " + k);
+                }
+                this.k = k;
+                this.random = new SplittableRandom(semente);
+                this.capacidades[0] = capacidade(0);
+                this.tamanhoMaximo = capacidades[0];
+            }
+
+            long getN() {
+                return n;
+            }
+
+            // Itens guardados (a memória do esboço é proporcional a este número)
+            int getItens() {
+                return tamanhoTotal;
+            }
+
+            private int capacidade(int nivel) {
+                return (int) Math.ceil(k * Math.pow(FATOR_CAPACIDADE, niveis.length - 1 - nivel)) + 1;
+            }
+
+            // Acrescenta um lote ao nível 0: uma ordenação por lote em vez de uma
+            // compactação minúscula a cada valor quando os níveis baixos estão cheios
+            void adicionar(double[] valores, int inicio, int fim) {
+                acrescentar(0, valores, inicio, fim - inicio);
+                n += fim - inicio;
+                tamanhoTotal += fim - inicio;
+                while (tamanhoTotal >= tamanhoMaximo) compactar();
+            }
+
+            EsbocoKLL combinar(EsbocoKLL outro) {
+                while (niveis.length < outro.niveis.length) crescer();
+                acrescentar(0, outro.niveis[0], 0, outro.tamanhos[0]);
+                for (int h = 1; h < outro.niveis.length; h++) {
+                    intercalar(h, outro.niveis[h], outro.tamanhos[h]);
+                }
+                n += outro.n;
+                tamanhoTotal += outro.tamanhoTotal;
+                while (tamanhoTotal >= tamanhoMaximo) compactar();
+                return this;
+            }
+
+            private void crescer() {
+                niveis = Arrays.copyOf(niveis, niveis.length + 1);
+                niveis[niveis.length - 1] = new double[8];
+                tamanhos = Arrays.copyOf(tamanhos, tamanhos.length + 1);
+                capacidades = new int[niveis.length];
+                tamanhoMaximo = 0;
+                for (int h = 0; h < niveis.length; h++) {
+                    capacidades[h] = capacidade(h);
+                    tamanhoMaximo += capacidades[h];
+                }
+            }
+
+            private void acrescentar(int nivel, double[] valores, int inicio, int quantidade) {
+                int tamanho = tamanhos[nivel];
+                if (tamanho + quantidade > niveis[nivel].length) {
+                    niveis[nivel] = Arrays.copyOf(niveis[nivel], Math.max(2 * niveis[nivel].length, tamanho + quantidade));
+                }
+                System.arraycopy(valores, inicio, niveis[nivel], tamanho, quantidade);
+                tamanhos[nivel] = tamanho + quantidade;
+            }
+
+            // Intercala valores ordenados no nível (ordenado) dado, de trás para a frente
+            private void intercalar(int nivel, double[] valores, int quantidade) {
+                int tamanho = tamanhos[nivel];
+                if (tamanho + quantidade > niveis[nivel].length) {
+                    niveis[nivel] = Arrays.copyOf(niveis[nivel], Math.max(2 * niveis[nivel].length, tamanho + quantidade));
+                }
+                double[] destino = niveis[nivel];
+                int i = tamanho - 1, j = quantidade - 1;
+                for (int k = tamanho + quantidade - 1; j >= 0; k--) {
+                    destino[k] = i >= 0 && destino[i] > valores[j] ? destino[i--] : valores[j--];
+                }
+                tamanhos[nivel] = tamanho + quantidade;
+            }
+
+            // Compacta o nível mais baixo que atingiu a capacidade
+            private void compactar() {
+                for (int h = 0; h < niveis.length; h++) {
+                    if (tamanhos[h] < capacidades[h]) continue;
+                    if (h + 1 == niveis.length) crescer();
+                    double[] nivel = niveis[h];
+                    int tamanho = tamanhos[h];
+                    if (h == 0) Arrays.sort(nivel, 0, tamanho);
+                    // Com tamanho ímpar o maior item fica no nível; os pares sobem metade
+                    int pares = tamanho & ~1;
+                    int promovidos = pares / 2;
+                    int deslocamento = random.nextBoolean() ? 1 : 0;
+                    for (int i = 0; i < promovidos; i++) {
+                        nivel[i] = nivel[2 * i + deslocamento];
+                    }
+                    intercalar(h + 1, nivel, promovidos);
+                    nivel[0] = nivel[tamanho - 1];
+                    tamanhos[h] = tamanho - pares;
+                    tamanhoTotal -= promovidos;
+                    return;
+                }
+            }
+
+            // Quantis para as frações dadas (0 ≤ q ≤ 1), numa única ordenação dos itens
+            double[] quantis(double... fracoes) {
+                double[] valores = new double[tamanhoTotal];
+                long[] pesos = new long[tamanhoTotal];
+                Integer[] ordem = new Integer[tamanhoTotal];
+                int m = 0;
+                for (int h = 0; h < niveis.length; h++) {
+                    for (int i = 0; i < tamanhos[h]; i++) {
+                        valores[m] = niveis[h][i];
+                        pesos[m] = 1L << h;
+                        ordem[m] = m;
+                        m++;
+                    }
+                }
+                Arrays.sort(ordem, (a, b) -> Double.compare(valores[a], valores[b]));
+
+                double[] resultado = new double[fracoes.length];
+                for (int f = 0; f < fracoes.length; f++) {
+                    if (m == 0) {
+                        resultado[f] = Double.NaN;
+                        continue;
+                    }
+                    // Posto alvo: primeiro item cujo peso acumulado alcança q·n
+                    double alvo = fracoes[f] * n;
+                    long acumulado = 0;
+                    int i = 0;
+                    while (i < m - 1 && acumulado + pesos[ordem[i]] < alvo) {
+                        acumulado += pesos[ordem[i]];
+                        i++;
+                    }
+                    resultado[f] = valores[ordem[i]];
+                }
+                return resultado;
+            }
+        }
+
+        // Histograma de baldes fixos em [inicio, fim), com contagem abaixo e acima da
+        // faixa (NaN conta como acima). Combina-se somando as contagens.
+        static class Histograma {
+            final double inicio;
+            final double fim;
+            final long[] contagens;
+            long abaixo;
+            long acima;
+            private final double escala;
+
+            Histograma(double inicio, double fim, int baldes) {
+                if (!(fim > inicio) || baldes < 1) {
+                    throw new IllegalArgumentException("Faixa ou número de baldes inválido: ["
+                            + inicio + ", " + fim + "), " + baldes);
+                }
+                this.inicio = inicio;
+                this.fim = fim;
+                this.contagens = new long[baldes];
+                this.escala = baldes / (fim - inicio);
+            }
+
+            void adicionar(double valor) {
+                if (valor < inicio) {
+                    abaixo++;
+                } else if (valor < fim) {
+                    contagens[Math.min((int) ((valor - inicio) * escala), contagens.length - 1)]++;
+                } else {
+                    acima++;
+                }
+            }
+
+            Histograma combinar(Histograma outro) {
+                if (outro.inicio != inicio || outro.fim != fim || outro.contagens.length != contagens.length) {
+                    throw new IllegalArgumentException("Histogramas com baldes diferentes");
+                }
+                for (int b = 0; b < contagens.length; b++) contagens[b] += outro.contagens[b];
+                abaixo += outro.abaixo;
+                acima += outro.acima;
+                return this;
+            }
+
+            double limiteBalde(int balde) {
+                return inicio + balde / escala;
+            }
+        }
+
+        // Estado parcial da distribuição: momentos, esboço de quantis e histograma,
+        // todos alimentados pelo mesmo sub-bloco enquanto ele está no L1
+        static class EstadoDistribuicao {
+            final EstadoMomentos momentos = new EstadoMomentos();
+            final EsbocoKLL quantis;
+            final Histograma histograma;
+
+            EstadoDistribuicao(int k, long semente, double inicio, double fim, int baldes) {
+                this.quantis = new EsbocoKLL(k, semente);
+                this.histograma = new Histograma(inicio, fim, baldes);
+            }
+
+            void acumular(double[] vetor, int inicio, int fim) {
+                for (int ini = inicio; ini < fim; ini += EstadoMomentos.TAMANHO_SUBBLOCO) {
+                    int fimSub = Math.min(ini + EstadoMomentos.TAMANHO_SUBBLOCO, fim);
+                    momentos.combinar(EstadoMomentos.deSubbloco(vetor, ini, fimSub));
+                    quantis.adicionar(vetor, ini, fimSub);
+                    for (int j = ini; j < fimSub; j++) histograma.adicionar(vetor[j]);
+                }
+            }
+
+            EstadoDistribuicao combinar(EstadoDistribuicao outro) {
+                momentos.combinar(outro.momentos);
+                quantis.combinar(outro.quantis);
+                histograma.combinar(outro.histograma);
+                return this;
+            }
+        }
+
+        // Resultado com quantis aproximados (p50/p95/p99) e histograma
+        static class ResultadoDistribuicao extends ResultadoMomentos {
+            double p50;
+            double p95;
+            double p99;
+            Histograma histograma;
+            int itensEsboco;
+
+            ResultadoDistribuicao(EstadoDistribuicao estado, long tempo) {
+                super(estado.momentos, tempo);
+                double[] quantis = estado.quantis.quantis(0.50, 0.95, 0.99);
+                this.p50 = quantis[0];
+                this.p95 = quantis[1];
+                this.p99 = quantis[2];
+                this.histograma = estado.histograma;
+                this.itensEsboco = estado.quantis.getItens();
+            }
+        }
+
+        // Versão Sequencial - Distribuição: momentos, quantis e histograma numa passagem
+        public static ResultadoDistribuicao calcularDistribuicao(double[] vetor, double inicio, double fim,
+                int baldes) {
+            long t0 = System.nanoTime();
+            EstadoDistribuicao estado = new EstadoDistribuicao(EsbocoKLL.K_PADRAO, 0, inicio, fim, baldes);
+            estado.acumular(vetor, 0, vetor.length);
+            return new ResultadoDistribuicao(estado, System.nanoTime() - t0);
+        }
+
+        // Versão Paralela - Distribuição: cada bloco monta esboço e histograma locais,
+        // combinados em árvore pelo motor; a memória é a de um esboço por bloco
+        public static ResultadoDistribuicao calcularDistribuicao(double[] vetor, double inicio, double fim,
+                int baldes, MotorParalelo motor) {
+            long t0 = System.nanoTime();
+            EstadoDistribuicao estado = motor.reduzir(0, vetor.length, motor.getNumThreads(), (bloco, ini, f) -> {
+                EstadoDistribuicao parcial = new EstadoDistribuicao(EsbocoKLL.K_PADRAO, ini, inicio, fim, baldes);
+                parcial.acumular(vetor, ini, f);
+                return parcial;
+            }, EstadoDistribuicao::combinar);
+            return new ResultadoDistribuicao(estado, System.nanoTime() - t0);
+        }
+
+        // Estatística fora do heap sobre arquivo binário de doubles little-endian.
+        // O arquivo é mapeado em regiões alinhadas a página, processadas em paralelo
+        // diretamente do page cache; registros acrescentados depois são incorporados
+        // por atualizar() sem reprocessar o início do arquivo.
+        static class EstatisticaArquivo {
+            // Múltiplo do tamanho de página e de Double.BYTES
+            static final long TAMANHO_REGIAO = 64L << 20;
+
+            private final Path caminho;
+            private final EstadoMomentos estado = new EstadoMomentos();
+            private long bytesProcessados;
+
+            EstatisticaArquivo(Path caminho) {
+                this.caminho = caminho;
+            }
+
+            long getRegistros() {
+                return estado.n;
+            }
+
+            // Processa os registros completos ainda não vistos e devolve o acumulado
+            ResultadoMomentos atualizar(MotorParalelo motor) throws IOException {
+                long inicio = System.nanoTime();
+                try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+                    long fimBytes = canal.size() - canal.size() % Double.BYTES;
+                    if (fimBytes > bytesProcessados) {
+                        long inicioBytes = bytesProcessados;
+                        int primeiraRegiao = (int) (inicioBytes / TAMANHO_REGIAO);
+                        int numRegioes = (int) ((fimBytes - 1) / TAMANHO_REGIAO) + 1 - primeiraRegiao;
+
+                        EstadoMomentos novo = motor.reduzir(0, numRegioes, numRegioes, (bloco, ini, fim) -> {
+                            EstadoMomentos parcial = new EstadoMomentos();
+                            for (int r = ini; r < fim; r++) {
+                                long regiao = (long) (primeiraRegiao + r) * TAMANHO_REGIAO;
+                                long de = Math.max(regiao, inicioBytes);
+                                long ate = Math.min(regiao + TAMANHO_REGIAO, fimBytes);
+                                parcial.combinar(processarRegiao(canal, de, ate));
+                            }
+                            return parcial;
+                        }, EstadoMomentos::combinar);
+
+                        estado.combinar(novo);
+                        bytesProcessados = fimBytes;
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                long tempo = System.nanoTime() - inicio;
+                return new ResultadoMomentos(estado, tempo);
+            }
+
+            private static EstadoMomentos processarRegiao(FileChannel canal, long de, long ate) {
+                try {
+                    DoubleBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, de, ate - de)
+                            .order(ByteOrder.LITTLE_ENDIAN)
+                            .asDoubleBuffer();
+                    return EstadoMomentos.deIntervalo(buffer, 0, buffer.limit());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            // Acrescenta os valores ao final do arquivo (doubles little-endian)
+            static void acrescentar(Path caminho, double[] vetor) throws IOException {
+                try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+                    for (double valor : vetor) {
+                        if (!buffer.hasRemaining()) {
+                            buffer.flip();
+                            while (buffer.hasRemaining()) canal.write(buffer);
+                            buffer.clear();
+                        }
+                        buffer.putDouble(valor);
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) canal.write(buffer);
+                }
+            }
+        }
+
+        // Demonstração: quantis aproximados e histograma na mesma passagem dos momentos,
+        // comparados aos quantis exatos de uma ordenação completa
+        static void executarDistribuicao(double[] vetor, int[] numThreadsList) {
+            int baldes = 10;
+            long inicioOrdenacao = System.nanoTime();
+            double[] ordenado = vetor.clone();
+            Arrays.sort(ordenado);
+            long tempoOrdenacao = System.nanoTime() - inicioOrdenacao;
+            System.out.printf("Exato (ordenação): p50=%.4f, p95=%.4f, p99=%.4f, Tempo=%.3f ms\n",
+                    ordenado[(int) (0.50 * (vetor.length - 1))], ordenado[(int) (0.95 * (vetor.length - 1))],
+                    ordenado[(int) (0.99 * (vetor.length - 1))], tempoOrdenacao / 1_000_000.0);
+
+            ResultadoDistribuicao resSeq = calcularDistribuicao(vetor, 0, 100, baldes);
+            System.out.printf("Distribuição Sequencial: p50=%.4f, p95=%.4f, p99=%.4f, Esboço=%d itens, " +
+                    "Tempo=%.3f ms\n", resSeq.p50, resSeq.p95, resSeq.p99, resSeq.itensEsboco,
+                    resSeq.tempo / 1_000_000.0);
+
+            for (int numThreads : numThreadsList) {
+                ResultadoDistribuicao resPar = calcularDistribuicao(vetor, 0, 100, baldes,
+                        MotorParalelo.compartilhado(numThreads));
+                double speedup = (double) resSeq.tempo / resPar.tempo;
+                System.out.printf("Distribuição (%d threads): Média=%.4f, Desvio=%.4f, p50=%.4f, p95=%.4f, " +
+                        "p99=%.4f, Tempo=%.3f ms, Speedup=%.2fx\n", numThreads, resPar.media, resPar.desvioPadrao,
+                        resPar.p50, resPar.p95, resPar.p99, resPar.tempo / 1_000_000.0, speedup);
+            }
+
+            Histograma histograma = resSeq.histograma;
+            StringBuilder linha = new StringBuilder("Histograma:");
+            for (int b = 0; b < baldes; b++) {
+                linha.append(String.format(" [%.0f, %.0f)=%d", histograma.limiteBalde(b),
+                        histograma.limiteBalde(b + 1), histograma.contagens[b]));
+            }
+            System.out.println(linha);
+        }
+
+        // Demonstração: estatística do arquivo e atualização incremental após acréscimo
+        static void executarArquivo(double[] vetor) throws IOException {
+            Path arquivo = Files.createTempFile("exercicio4-", ".bin");
+            try {
+                int metade = vetor.length / 2;
+                EstatisticaArquivo.acrescentar(arquivo, Arrays.copyOfRange(vetor, 0, metade));
+
+                MotorParalelo motor = MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+                EstatisticaArquivo estatistica = new EstatisticaArquivo(arquivo);
+                ResultadoMomentos resInicial = estatistica.atualizar(motor);
+                System.out.printf("Arquivo mapeado (%d registros): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms\n",
+                        estatistica.getRegistros(), resInicial.media, resInicial.desvioPadrao,
+                        resInicial.tempo / 1_000_000.0);
+
+                EstatisticaArquivo.acrescentar(arquivo, Arrays.copyOfRange(vetor, metade, vetor.length));
+                ResultadoMomentos resIncremental = estatistica.atualizar(motor);
+                System.out.printf("Arquivo incremental (%d registros): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms\n",
+                        estatistica.getRegistros(), resIncremental.media, resIncremental.desvioPadrao,
+                        resIncremental.tempo / 1_000_000.0);
+            } finally {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+
+        public static void executar() throws InterruptedException, IOException {
+            System.out.println("=== EXERCÍCIO 4: MÉDIA E DESVIO PADRÃO ===\n");
+            
+            int[] tamanhos = {1_000_000, 5_000_000, 10_000_000};
+            int[] numThreadsList = AutoAjuste.listaThreads("exercicio4.passagemUnica");
+            
+            for (int tamanho : tamanhos) {
+                System.out.println("Tamanho do vetor: " + tamanho);
+                
+                // Gerar vetor aleatório (em paralelo, ou do cache de dados)
+                double[] vetor = Dados.vetor(tamanho, 100, 42);
+                
+                // Versão sequencial
+                ResultadoEstatistico resSeq = calcularSequencial(vetor);
+                System.out.printf("Sequencial: Média=%.4f, Desvio=%.4f, Tempo=%.3f ms\n",
+                        resSeq.media, resSeq.desvioPadrao, resSeq.tempo / 1_000_000.0);
+
+                ResultadoMomentos resUnica = calcularPassagemUnica(vetor);
+                System.out.printf("Sequencial Passagem Única: Média=%.4f, Desvio=%.4f, Mín=%.4f, " +
+                        "Máx=%.4f, Assimetria=%.4f, Curtose=%.4f, Tempo=%.3f ms\n",
+                        resUnica.media, resUnica.desvioPadrao, resUnica.minimo, resUnica.maximo,
+                        resUnica.assimetria, resUnica.curtose, resUnica.tempo / 1_000_000.0);
+
+                ResultadoEstatistico resComp = calcularSequencialCompensado(vetor);
+                System.out.printf("Sequencial Compensado: Média=%.4f, Desvio=%.4f, Tempo=%.3f ms, Núcleo=%s\n",
+                        resComp.media, resComp.desvioPadrao, resComp.tempo / 1_000_000.0,
+                        SomaCompensada.nomeNucleo());
+
+                // Versões paralelas
+                for (int numThreads : numThreadsList) {
+                    ResultadoEstatistico resPar = calcularParalelo(vetor, numThreads);
+                    double speedup = (double) resSeq.tempo / resPar.tempo;
+                    double eficiencia = speedup / numThreads;
+                    
+                    System.out.printf("Paralelo (%d threads): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resPar.media, resPar.desvioPadrao, 
+                            resPar.tempo / 1_000_000.0, speedup, eficiencia * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoEstatistico resMotor = calcularParalelo(vetor,
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupMotor = (double) resSeq.tempo / resMotor.tempo;
+                    double eficienciaMotor = speedupMotor / numThreads;
+
+                    System.out.printf("Paralelo Motor (%d threads): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resMotor.media, resMotor.desvioPadrao,
+                            resMotor.tempo / 1_000_000.0, speedupMotor, eficienciaMotor * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoMomentos resUnicaPar = calcularPassagemUnica(vetor,
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupUnica = (double) resSeq.tempo / resUnicaPar.tempo;
+
+                    System.out.printf("Passagem Única (%d threads): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resUnicaPar.media, resUnicaPar.desvioPadrao,
+                            resUnicaPar.tempo / 1_000_000.0, speedupUnica, speedupUnica / numThreads * 100);
+
+                    ResultadoEstatistico resCompPar = calcularParaleloCompensado(vetor,
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupComp = (double) resSeq.tempo / resCompPar.tempo;
+
+                    System.out.printf("Compensado (%d threads): Média=%.4f, Desvio=%.4f, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resCompPar.media, resCompPar.desvioPadrao,
+                            resCompPar.tempo / 1_000_000.0, speedupComp, speedupComp / numThreads * 100);
+                }
+
+                executarDistribuicao(vetor, numThreadsList);
+                executarArquivo(vetor);
+                System.out.println();
+            }
+        }
+    }
+    
+    static class Exercicio5 {
+        
+        static class ResultadoMultiplicacao extends Resultado {
+            double[] resultado;
+            
+            ResultadoMultiplicacao(double[] resultado, long tempo) {
+                super(tempo);
+                this.resultado = resultado;
+            }
+        }
+        
+        // Versão Sequencial
+        public static ResultadoMultiplicacao multiplicarSequencial(double[][] matriz, double[] vetor) {
+            long inicio = System.nanoTime();
+            int n = matriz.length;
+            double[] resultado = new double[n];
+            
+            for (int i = 0; i < n; i++) {
+                double soma = 0;
+                for (int j = 0; j < n; j++) {
+                    soma += matriz[i][j] * vetor[j];
+                }
+                resultado[i] = soma;
+            }
+            
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+        
+        // Versão Paralela
+        public static ResultadoMultiplicacao multiplicarParalelo(double[][] matriz, double[] vetor, 
+                int numThreads) throws InterruptedException {
+            long inicio = System.nanoTime();
+            int n = matriz.length;
+            double[] resultado = new double[n];
+            
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(numThreads, numThreads);
+            int linhasPorThread = n / numThreads;
+            Thread[] threads = new Thread[numThreads];
+            for (int i = 0; i < numThreads; i++) {
+                final int threadId = i;
+                final int inicioLinha = i * linhasPorThread;
+                final int fimLinha = (i == numThreads - 1) ? n : (i + 1) * linhasPorThread;
+                
+                threads[i] = new Thread(() -> {
+                    long t0 = medicao != null ? System.nanoTime() : 0;
+                    for (int linha = inicioLinha; linha < fimLinha; linha++) {
+                        double soma = 0;
+                        for (int col = 0; col < n; col++) {
+                            soma += matriz[linha][col] * vetor[col];
+                        }
+                        resultado[linha] = soma;
+                    }
+                    if (medicao != null) medicao.registrar(threadId, threadId, t0, System.nanoTime(), fimLinha - inicioLinha);
+                });
+                Instrumentacao.iniciar(threads[i], medicao);
+            }
+            
+            for (Thread thread : threads) {
+                Instrumentacao.juntar(thread, medicao);
+            }
+
+            long tempo = System.nanoTime() - inicio;
+            if (medicao != null) Instrumentacao.fechar(medicao, inicio, inicio + tempo);
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        // Versão Paralela - Motor persistente
+        public static ResultadoMultiplicacao multiplicarParalelo(double[][] matriz, double[] vetor,
+                MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int n = matriz.length;
+            double[] resultado = new double[n];
+
+            motor.paraCada(0, n, motor.getNumThreads(), (bloco, inicioLinha, fimLinha) -> {
+                for (int linha = inicioLinha; linha < fimLinha; linha++) {
+                    double soma = 0;
+                    for (int col = 0; col < n; col++) {
+                        soma += matriz[linha][col] * vetor[col];
+                    }
+                    resultado[linha] = soma;
+                }
+            });
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        // Matriz densa em um único double[] linha a linha (row-major): uma só
+        // alocação, linhas contíguas e acesso sem dupla indireção no laço interno
+        static class MatrizDensa {
+            final int linhas;
+            final int colunas;
+            final double[] dados;
+
+            MatrizDensa(int linhas, int colunas) {
+                if ((long) linhas * colunas > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("Matriz grande demais: " + linhas + "×" + colunas);
+                }
+                this.linhas = linhas;
+                this.colunas = colunas;
+                this.dados = new double[linhas * colunas];
+            }
+
+            static MatrizDensa deJagged(double[][] matriz) {
+                MatrizDensa plana = new MatrizDensa(matriz.length, matriz[0].length);
+                for (int i = 0; i < plana.linhas; i++) {
+                    System.arraycopy(matriz[i], 0, plana.dados, i * plana.colunas, plana.colunas);
+                }
+                return plana;
+            }
+
+            double get(int i, int j) {
+                return dados[i * colunas + j];
+            }
+
+            void set(int i, int j, double valor) {
+                dados[i * colunas + j] = valor;
+            }
+        }
+
+        // Implementado por ProdutoEscalarVetorial (módulo vetorial, Vector API)
+        interface NucleoProdutoEscalar {
+            double produtoEscalar(double[] a, int inicioA, double[] x, int inicioX, int n);
+        }
+
+        // Pista k do vetor de 256 bits = acumulador k do laço escalar: mesmo resultado bit a bit
+        private static final NucleoProdutoEscalar PRODUTO_VETORIAL = NucleoVetorial.carregar(
+                "speedup.ProdutoEscalarVetorial", NucleoProdutoEscalar.class, (nucleo, amostra, fim) ->
+                        Double.compare(nucleo.produtoEscalar(amostra, 0, amostra, amostra.length - fim, fim),
+                                produtoEscalarEscalar(amostra, 0, amostra, amostra.length - fim, fim)) == 0);
+
+        static String nomeNucleoProdutoEscalar() {
+            return PRODUTO_VETORIAL != null ? "vetorial (Vector API, 4 pistas)" : "escalar (4 acumuladores)";
+        }
+
+        static double produtoEscalar(double[] a, int inicioA, double[] x, int inicioX, int n) {
+            return PRODUTO_VETORIAL != null
+                    ? PRODUTO_VETORIAL.produtoEscalar(a, inicioA, x, inicioX, n)
+                    : produtoEscalarEscalar(a, inicioA, x, inicioX, n);
+        }
+
+        // Produto escalar desenrolado com 4 acumuladores independentes
+        static double produtoEscalarEscalar(double[] a, int inicioA, double[] x, int inicioX, int n) {
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int j = 0;
+            for (; j + 3 < n; j += 4) {
+                s0 += a[inicioA + j] * x[inicioX + j];
+                s1 += a[inicioA + j + 1] * x[inicioX + j + 1];
+                s2 += a[inicioA + j + 2] * x[inicioX + j + 2];
+                s3 += a[inicioA + j + 3] * x[inicioX + j + 3];
+            }
+            for (; j < n; j++) {
+                s0 += a[inicioA + j] * x[inicioX + j];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        // Linhas por tarefa para que cada bloco da matriz ocupe ~256 KB (L2)
+        static int linhasPorBloco(int colunas) {
+            int elementosL2 = (256 * 1024) / Double.BYTES;
+            return Math.max(1, elementosL2 / Math.max(1, colunas));
+        }
+
+        static void validarVetor(MatrizDensa matriz, double[] vetor) {
+            if (vetor.length != matriz.colunas) {
+                throw new IllegalArgumentException("Vetor com " + vetor.length + " elementos para matriz "
+                        + matriz.linhas + "×" + matriz.colunas);
+            }
+        }
+
+        // Versão Sequencial - Matriz plana
+        public static ResultadoMultiplicacao multiplicarSequencial(MatrizDensa matriz, double[] vetor) {
+            validarVetor(matriz, vetor);
+            long inicio = System.nanoTime();
+            double[] resultado = new double[matriz.linhas];
+
+            for (int i = 0; i < matriz.linhas; i++) {
+                resultado[i] = produtoEscalar(matriz.dados, i * matriz.colunas, vetor, 0, matriz.colunas);
+            }
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        // Versão Paralela - Matriz plana, linhas particionadas em blocos do tamanho do L2
+        public static ResultadoMultiplicacao multiplicarParalelo(MatrizDensa matriz, double[] vetor,
+                MotorParalelo motor) {
+            validarVetor(matriz, vetor);
+            long inicio = System.nanoTime();
+            double[] resultado = new double[matriz.linhas];
+            // GEMV é limitada por memória: o perfil evita threads além do platô de banda
+            int paralelismo = AutoAjuste.paralelismo("exercicio5.gemv", motor);
+            int linhasBloco = AutoAjuste.inteiro("exercicio5.gemv.linhas", linhasPorBloco(matriz.colunas));
+            int numBlocos = Math.max(paralelismo, (matriz.linhas + linhasBloco - 1) / linhasBloco);
+            // Menos blocos que threads do motor: no máximo paralelismo blocos rodam juntos
+            if (paralelismo < motor.getNumThreads()) numBlocos = paralelismo;
+
+            motor.paraCada(0, matriz.linhas, numBlocos, (bloco, inicioLinha, fimLinha) -> {
+                for (int i = inicioLinha; i < fimLinha; i++) {
+                    resultado[i] = produtoEscalar(matriz.dados, i * matriz.colunas, vetor, 0, matriz.colunas);
+                }
+            });
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        static class ResultadoIterativo extends Resultado {
+            double[] solucao;
+            double valor;       // autovalor (potência) ou norma relativa do último passo (Jacobi)
+            int iteracoes;
+            boolean convergiu;
+
+            ResultadoIterativo(double[] solucao, double valor, int iteracoes, boolean convergiu, long tempo) {
+                super(tempo);
+                this.solucao = solucao;
+                this.valor = valor;
+                this.iteracoes = iteracoes;
+                this.convergiu = convergiu;
+            }
+        }
+
+        // Solver iterativo com workers persistentes sobre uma matriz quadrada.
+        // Cada worker (a thread chamadora é o worker 0) fica com uma faixa fixa de
+        // linhas; a cada iteração escreve sua faixa do buffer seguinte a partir do
+        // atual e deixa as somas parciais das normas no próprio slot. Uma única
+        // CyclicBarrier separa as iterações: sua ação, executada pela última thread
+        // a chegar, soma as parciais, testa a convergência e troca os buffers.
+        // Por iteração não se cria thread nem se aloca vetor. Um erro no passo ou no
+        // critério é guardado e a thread ainda chega à barreira, que encerra a
+        // resolução para todos; resolver() relança o primeiro erro.
+        static class SolverIterativo implements AutoCloseable {
+            // Slots de parciais espaçados para não dividirem linha de cache
+            private static final int TAMANHO_SLOT = 16;
+
+            // Escreve proximo[inicio, fim) e acumula as somas da iteração em parciais
+            interface Passo {
+                void executar(int inicio, int fim, double[] atual, double[] proximo, double[] parciais);
+            }
+
+            // Recebe as somas totais da iteração; true encerra
+            interface Criterio {
+                boolean convergiu(double[] somas);
+            }
+
+            private final MatrizDensa matriz;
+            private final int numThreads;
+            private final Thread[] workers;
+            private final double[][] parciais;
+            private final double[] somas = new double[2];
+            private final CyclicBarrier partida;
+            private final CyclicBarrier barreira;
+
+            // Estado da resolução: escrito antes da partida ou pela ação da barreira
+            private double[] atual;
+            private double[] proximo;
+            private Passo passo;
+            private Criterio criterio;
+            private int maxIteracoes;
+            private int iteracoes;
+            private boolean convergiu;
+            private boolean continuar;
+            private boolean fechado;
+            private boolean quebrado;
+            private double escala;
+            private final AtomicReference<Throwable> falha = new AtomicReference<>();
+
+            SolverIterativo(MatrizDensa matriz, int numThreads) {
+                if (matriz.linhas != matriz.colunas) {
+                    throw new IllegalArgumentException("Matriz deve ser quadrada: " + matriz.linhas + "×" + matriz.colunas);
+                }
+                if (numThreads < 1) {
+                    throw new IllegalArgumentException("numThreads deve ser >= 1: " + numThreads);
+                }
+                this.matriz = matriz;
+                this.numThreads = numThreads;
+                this.atual = new double[matriz.linhas];
+                this.proximo = new double[matriz.linhas];
+                this.parciais = new double[numThreads][TAMANHO_SLOT];
+                this.partida = new CyclicBarrier(numThreads);
+                this.barreira = new CyclicBarrier(numThreads, this::concluirIteracao);
+                this.workers = new Thread[numThreads - 1];
+                for (int w = 1; w < numThreads; w++) {
+                    int id = w;
+                    workers[w - 1] = new Thread(() -> {
+                        try {
+                            while (true) {
+                                partida.await();
+                                if (fechado) return;
+                                iterar(id);
+                            }
+                        } catch (InterruptedException | BrokenBarrierException e) {
+                            // Solver fechado ou worker 0 interrompido: encerra
+                        }
+                    }, "solver-" + id);
+                    workers[w - 1].setDaemon(true);
+                    workers[w - 1].start();
+                }
+            }
+
+            // Iterações do worker id até a ação da barreira decidir parar
+            private void iterar(int id) throws InterruptedException, BrokenBarrierException {
+                int inicio = MotorParalelo.limiteBloco(0, matriz.linhas, numThreads, id);
+                int fim = MotorParalelo.limiteBloco(0, matriz.linhas, numThreads, id + 1);
+                double[] slot = parciais[id];
+                do {
+                    slot[0] = 0;
+                    slot[1] = 0;
+                    try {
+                        passo.executar(inicio, fim, atual, proximo, slot);
+                    } catch (Throwable e) {
+                        falha.compareAndSet(null, e);
+                    }
+                    barreira.await();
+                } while (continuar);
+            }
+
+            private void concluirIteracao() {
+                if (falha.get() == null) {
+                    try {
+                        avaliarIteracao();
+                    } catch (Throwable e) {
+                        falha.compareAndSet(null, e);
+                    }
+                }
+                continuar = falha.get() == null && !convergiu && iteracoes < maxIteracoes;
+            }
+
+            private void avaliarIteracao() {
+                somas[0] = 0;
+                somas[1] = 0;
+                for (double[] slot : parciais) {
+                    somas[0] += slot[0];
+                    somas[1] += slot[1];
+                }
+                double[] temporario = atual;
+                atual = proximo;
+                proximo = temporario;
+                iteracoes++;
+                convergiu = criterio.convergiu(somas);
+            }
+
+            private void resolver(double[] inicial, int maxIteracoes, Passo passo, Criterio criterio)
+                    throws InterruptedException {
+                if (fechado) throw new IllegalStateException("Solver fechado");
+                if (quebrado) throw new IllegalStateException("Solver inutilizável após barreira quebrada");
+                if (inicial.length != matriz.linhas) {
+                    throw new IllegalArgumentException("Vetor inicial com " + inicial.length
+                            + " elementos para matriz " + matriz.linhas + "×" + matriz.colunas);
+                }
+                if (maxIteracoes < 1) {
+                    throw new IllegalArgumentException("maxIteracoes deve ser >= 1: " + maxIteracoes);
+                }
+                falha.set(null);
+                System.arraycopy(inicial, 0, atual, 0, inicial.length);
+                this.maxIteracoes = maxIteracoes;
+                this.passo = passo;
+                this.criterio = criterio;
+                this.iteracoes = 0;
+                this.convergiu = false;
+                try {
+                    partida.await();
+                    iterar(0);
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    // Só interrupção quebra as barreiras: os workers não são confiáveis
+                    quebrado = true;
+                    for (Thread worker : workers) worker.interrupt();
+                    if (e instanceof InterruptedException) throw (InterruptedException) e;
+                    throw new IllegalStateException("Barreira do solver quebrada", e);
+                }
+                Throwable erro = falha.get();
+                if (erro instanceof RuntimeException) throw (RuntimeException) erro;
+                if (erro instanceof Error) throw (Error) erro;
+                if (erro != null) throw new IllegalStateException(erro);
+            }
+
+            // Iteração da potência: x ← A·x / ‖A·x‖. A normalização vai embutida no
+            // passo seguinte (escala = 1/‖x‖), e as somas ‖A·x̂‖² e x̂·A·x̂ (quociente
+            // de Rayleigh) saem do mesmo laço que calcula A·x
+            ResultadoIterativo iteracaoPotencia(double tolerancia, int maxIteracoes) throws InterruptedException {
+                long inicio = System.nanoTime();
+                int n = matriz.linhas;
+                double[] inicial = new double[n];
+                Arrays.fill(inicial, 1.0);
+                escala = 1 / Math.sqrt(n);
+                double[] autovalor = {Double.NaN};
+
+                resolver(inicial, maxIteracoes, (ini, fim, x, y, parcial) -> {
+                    double s = escala, normaQuadrada = 0, rayleigh = 0;
+                    for (int i = ini; i < fim; i++) {
+                        double yi = produtoEscalar(matriz.dados, i * n, x, 0, n) * s;
+                        y[i] = yi;
+                        normaQuadrada += yi * yi;
+                        rayleigh += x[i] * s * yi;
+                    }
+                    parcial[0] = normaQuadrada;
+                    parcial[1] = rayleigh;
+                }, somas -> {
+                    double anterior = autovalor[0];
+                    autovalor[0] = somas[1];
+                    escala = 1 / Math.sqrt(somas[0]);
+                    return Math.abs(autovalor[0] - anterior) <= tolerancia * Math.abs(autovalor[0]);
+                });
+
+                double[] vetor = new double[n];
+                for (int i = 0; i < n; i++) vetor[i] = atual[i] * escala;
+                return new ResultadoIterativo(vetor, autovalor[0], iteracoes, convergiu, System.nanoTime() - inicio);
+            }
+
+            // Jacobi para A·x = b (A diagonalmente dominante): ‖Δx‖² e ‖x‖² do
+            // critério de parada são acumulados no mesmo laço da atualização
+            ResultadoIterativo jacobi(double[] b, double tolerancia, int maxIteracoes) throws InterruptedException {
+                long inicio = System.nanoTime();
+                int n = matriz.linhas;
+                if (b.length != n) {
+                    throw new IllegalArgumentException("b com " + b.length + " elementos para matriz " + n + "×" + n);
+                }
+                double[] residuo = {Double.NaN};
+
+                resolver(new double[n], maxIteracoes, (ini, fim, x, proximoX, parcial) -> {
+                    double diferencaQuadrada = 0, normaQuadrada = 0;
+                    for (int i = ini; i < fim; i++) {
+                        double diagonal = matriz.dados[i * n + i];
+                        double soma = produtoEscalar(matriz.dados, i * n, x, 0, n) - diagonal * x[i];
+                        double xi = (b[i] - soma) / diagonal;
+                        double d = xi - x[i];
+                        proximoX[i] = xi;
+                        diferencaQuadrada += d * d;
+                        normaQuadrada += xi * xi;
+                    }
+                    parcial[0] = diferencaQuadrada;
+                    parcial[1] = normaQuadrada;
+                }, somas -> {
+                    residuo[0] = Math.sqrt(somas[0] / somas[1]);
+                    return residuo[0] <= tolerancia;
+                });
+
+                return new ResultadoIterativo(atual.clone(), residuo[0], iteracoes, convergiu, System.nanoTime() - inicio);
+            }
+
+            @Override
+            public void close() {
+                if (fechado) return;
+                fechado = true;
+                try {
+                    partida.await(1, TimeUnit.SECONDS);
+                    for (Thread worker : workers) worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    for (Thread worker : workers) worker.interrupt();
+                } catch (BrokenBarrierException | TimeoutException e) {
+                    for (Thread worker : workers) worker.interrupt();
+                }
+            }
+        }
+
+        // Referência: iteração da potência chamando multiplicarParalelo (cria e junta
+        // numThreads threads e aloca um vetor novo a cada iteração)
+        public static ResultadoIterativo iteracaoPotenciaComThreads(double[][] matriz, double tolerancia,
+                int maxIteracoes, int numThreads) throws InterruptedException {
+            long inicio = System.nanoTime();
+            int n = matriz.length;
+            double[] x = new double[n];
+            Arrays.fill(x, 1 / Math.sqrt(n));
+            double autovalor = Double.NaN;
+            int iteracoes = 0;
+            boolean convergiu = false;
+
+            while (!convergiu && iteracoes < maxIteracoes) {
+                double[] y = multiplicarParalelo(matriz, x, numThreads).resultado;
+                double normaQuadrada = 0, rayleigh = 0;
+                for (int i = 0; i < n; i++) {
+                    normaQuadrada += y[i] * y[i];
+                    rayleigh += x[i] * y[i];
+                }
+                double norma = Math.sqrt(normaQuadrada);
+                for (int i = 0; i < n; i++) y[i] /= norma;
+                convergiu = Math.abs(rayleigh - autovalor) <= tolerancia * Math.abs(rayleigh);
+                autovalor = rayleigh;
+                x = y;
+                iteracoes++;
+            }
+            return new ResultadoIterativo(x, autovalor, iteracoes, convergiu, System.nanoTime() - inicio);
+        }
+
+        static class ResultadoLote extends Resultado {
+            MatrizDensa resultado;
+            double gflops;
+
+            ResultadoLote(MatrizDensa resultado, long tempo, long operacoes) {
+                super(tempo);
+                this.resultado = resultado;
+                this.gflops = (double) operacoes / tempo;
+            }
+        }
+
+        // Tiles da multiplicação em lote: bloco de A com TILE_LINHAS × TILE_COLUNAS
+        // (~128 KB, L2) reutilizado por TILE_VETORES vetores (~16 KB por faixa, L1)
+        static final int TILE_LINHAS = 64;
+        static final int TILE_COLUNAS = 256;
+        static final int TILE_VETORES = 8;
+
+        private static void validarLote(MatrizDensa matriz, MatrizDensa vetores) {
+            if (vetores.colunas != matriz.colunas) {
+                throw new IllegalArgumentException("Dimensões incompatíveis: " + matriz.colunas
+                        + " colunas × vetores de " + vetores.colunas);
+            }
+        }
+
+        // Versão Sequencial - Lote: uma GEMV por vetor (relê A da memória a cada vetor)
+        public static ResultadoLote multiplicarLoteSequencial(MatrizDensa matriz, MatrizDensa vetores) {
+            validarLote(matriz, vetores);
+            long inicio = System.nanoTime();
+            MatrizDensa resultado = new MatrizDensa(vetores.linhas, matriz.linhas);
+
+            for (int v = 0; v < vetores.linhas; v++) {
+                for (int i = 0; i < matriz.linhas; i++) {
+                    resultado.dados[v * matriz.linhas + i] = produtoEscalar(matriz.dados, i * matriz.colunas,
+                            vetores.dados, v * vetores.colunas, matriz.colunas);
+                }
+            }
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoLote(resultado, tempo, 2L * matriz.linhas * matriz.colunas * vetores.linhas);
+        }
+
+        // Versão Paralela - Lote com tiling: cada vetor é uma linha de "vetores"
+        // e cada linha de "resultado" é A·vetor. Cada tarefa é uma faixa de
+        // TILE_LINHAS linhas de A e percorre todos os vetores enquanto cada tile
+        // de A está no cache: A vem da memória uma vez por lote. Os vetores só são
+        // divididos entre tarefas quando há menos faixas de linhas que threads.
+        public static ResultadoLote multiplicarLote(MatrizDensa matriz, MatrizDensa vetores, MotorParalelo motor) {
+            validarLote(matriz, vetores);
+            long inicio = System.nanoTime();
+            MatrizDensa resultado = new MatrizDensa(vetores.linhas, matriz.linhas);
+
+            int tilesLinhas = (matriz.linhas + TILE_LINHAS - 1) / TILE_LINHAS;
+            int tilesVetores = (vetores.linhas + TILE_VETORES - 1) / TILE_VETORES;
+            int gruposVetores = tilesLinhas >= motor.getNumThreads() ? 1
+                    : Math.min(tilesVetores, (motor.getNumThreads() + tilesLinhas - 1) / tilesLinhas);
+            int numTarefas = tilesLinhas * gruposVetores;
+
+            motor.paraCada(0, numTarefas, numTarefas, (bloco, primeiraTarefa, ultimaTarefa) -> {
+                for (int t = primeiraTarefa; t < ultimaTarefa; t++) {
+                    int i0 = (t / gruposVetores) * TILE_LINHAS;
+                    int grupo = t % gruposVetores;
+                    int v0 = MotorParalelo.limiteBloco(0, tilesVetores, gruposVetores, grupo) * TILE_VETORES;
+                    int v1 = MotorParalelo.limiteBloco(0, tilesVetores, gruposVetores, grupo + 1) * TILE_VETORES;
+                    multiplicarTile(matriz, vetores, resultado,
+                            i0, Math.min(i0 + TILE_LINHAS, matriz.linhas),
+                            v0, Math.min(v1, vetores.linhas));
+                }
+            });
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoLote(resultado, tempo, 2L * matriz.linhas * matriz.colunas * vetores.linhas);
+        }
+
+        // Saída [i0, i1) × [v0, v1), percorrendo as colunas em faixas de TILE_COLUNAS.
+        // O tile de A da faixa (L2) passa por todos os vetores, TILE_VETORES por vez
+        // (faixas dos vetores no L1). Micro-kernel 2×2: 4 produtos por 4 leituras.
+        private static void multiplicarTile(MatrizDensa matriz, MatrizDensa vetores, MatrizDensa resultado,
+                int i0, int i1, int v0, int v1) {
+            for (int jj = 0; jj < matriz.colunas; jj += TILE_COLUNAS) {
+                for (int vv = v0; vv < v1; vv += TILE_VETORES) {
+                    multiplicarMicroTiles(matriz, vetores, resultado, jj, i0, i1, vv, Math.min(vv + TILE_VETORES, v1));
+                }
+            }
+        }
+
+        private static void multiplicarMicroTiles(MatrizDensa matriz, MatrizDensa vetores, MatrizDensa resultado,
+                int jj, int i0, int i1, int v0, int v1) {
+            double[] a = matriz.dados;
+            double[] x = vetores.dados;
+            double[] y = resultado.dados;
+            int n = matriz.colunas;
+            int m = matriz.linhas;
+            int largura = Math.min(TILE_COLUNAS, n - jj);
+            int i = i0;
+            for (; i + 1 < i1; i += 2) {
+                int a0 = i * n + jj;
+                int a1 = a0 + n;
+                int v = v0;
+                for (; v + 1 < v1; v += 2) {
+                    int x0 = v * n + jj;
+                    int x1 = x0 + n;
+                    double s00 = 0, s01 = 0, s10 = 0, s11 = 0;
+                    for (int j = 0; j < largura; j++) {
+                        double aa0 = a[a0 + j];
+                        double aa1 = a[a1 + j];
+                        double xx0 = x[x0 + j];
+                        double xx1 = x[x1 + j];
+                        s00 += aa0 * xx0;
+                        s01 += aa0 * xx1;
+                        s10 += aa1 * xx0;
+                        s11 += aa1 * xx1;
+                    }
+                    y[v * m + i] += s00;
+                    y[v * m + i + 1] += s10;
+                    y[(v + 1) * m + i] += s01;
+                    y[(v + 1) * m + i + 1] += s11;
+                }
+                for (; v < v1; v++) {
+                    y[v * m + i] += produtoEscalar(a, a0, x, v * n + jj, largura);
+                    y[v * m + i + 1] += produtoEscalar(a, a1, x, v * n + jj, largura);
+                }
+            }
+            for (; i < i1; i++) {
+                for (int v = v0; v < v1; v++) {
+                    y[v * m + i] += produtoEscalar(a, i * n + jj, x, v * n + jj, largura);
+                }
+            }
+        }
+
+        // Matriz esparsa em formato CSR (Compressed Sparse Row): os não-zeros da
+        // linha i estão em [inicioLinha[i], inicioLinha[i + 1]) de colunasIdx/valores
+        static class MatrizCSR {
+            final int linhas;
+            final int colunas;
+            final int[] inicioLinha;
+            final int[] colunasIdx;
+            final double[] valores;
+
+            MatrizCSR(int linhas, int colunas, int[] inicioLinha, int[] colunasIdx, double[] valores) {
+                this.linhas = linhas;
+                this.colunas = colunas;
+                this.inicioLinha = inicioLinha;
+                this.colunasIdx = colunasIdx;
+                this.valores = valores;
+            }
+
+            int naoZeros() {
+                return inicioLinha[linhas];
+            }
+
+            // Conversão a partir do formato denso double[][]
+            static MatrizCSR deDensa(double[][] matriz) {
+                int linhas = matriz.length;
+                int colunas = matriz[0].length;
+                int[] inicioLinha = new int[linhas + 1];
+                for (int i = 0; i < linhas; i++) {
+                    int count = 0;
+                    for (int j = 0; j < colunas; j++) {
+                        if (matriz[i][j] != 0) count++;
+                    }
+                    inicioLinha[i + 1] = inicioLinha[i] + count;
+                }
+
+                int[] colunasIdx = new int[inicioLinha[linhas]];
+                double[] valores = new double[inicioLinha[linhas]];
+                for (int i = 0; i < linhas; i++) {
+                    int k = inicioLinha[i];
+                    for (int j = 0; j < colunas; j++) {
+                        if (matriz[i][j] != 0) {
+                            colunasIdx[k] = j;
+                            valores[k++] = matriz[i][j];
+                        }
+                    }
+                }
+                return new MatrizCSR(linhas, colunas, inicioLinha, colunasIdx, valores);
+            }
+
+            // Matriz sintética com linhas de tamanho em lei de potência (Zipf):
+            // a linha i tem ~C / (i + 1)^expoente não-zeros em colunas aleatórias
+            static MatrizCSR gerarLeiPotencia(int n, long naoZerosAlvo, double expoente, long semente) {
+                double harmonico = 0;
+                for (int i = 0; i < n; i++) {
+                    harmonico += Math.pow(i + 1, -expoente);
+                }
+                double c = naoZerosAlvo / harmonico;
+
+                int[] inicioLinha = new int[n + 1];
+                for (int i = 0; i < n; i++) {
+                    int tamanho = (int) Math.min(n, Math.max(1, Math.round(c * Math.pow(i + 1, -expoente))));
+                    inicioLinha[i + 1] = inicioLinha[i] + tamanho;
+                }
+
+                Random random = new Random(semente);
+                int[] colunasIdx = new int[inicioLinha[n]];
+                double[] valores = new double[inicioLinha[n]];
+                for (int i = 0; i < n; i++) {
+                    int tamanho = inicioLinha[i + 1] - inicioLinha[i];
+                    // Amostragem de colunas distintas e ordenadas (Floyd para linhas curtas)
+                    int[] cols = tamanho == n ? todasColunas(n) : amostrarColunas(random, n, tamanho);
+                    for (int k = 0; k < tamanho; k++) {
+                        colunasIdx[inicioLinha[i] + k] = cols[k];
+                        valores[inicioLinha[i] + k] = random.nextDouble();
+                    }
+                }
+                return new MatrizCSR(n, n, inicioLinha, colunasIdx, valores);
+            }
+
+            private static int[] todasColunas(int n) {
+                int[] cols = new int[n];
+                for (int j = 0; j < n; j++) cols[j] = j;
+                return cols;
+            }
+
+            private static int[] amostrarColunas(Random random, int n, int tamanho) {
+                HashSet<Integer> escolhidas = new HashSet<>();
+                for (int j = n - tamanho; j < n; j++) {
+                    int t = random.nextInt(j + 1);
+                    escolhidas.add(escolhidas.contains(t) ? j : t);
+                }
+                int[] cols = new int[tamanho];
+                int k = 0;
+                for (int col : escolhidas) cols[k++] = col;
+                Arrays.sort(cols);
+                return cols;
+            }
+
+            // Fronteiras de linha que dividem os não-zeros em numPartes partes iguais
+            int[] particionarPorNaoZeros(int numPartes) {
+                int[] limites = new int[numPartes + 1];
+                long total = naoZeros();
+                for (int p = 1; p < numPartes; p++) {
+                    int alvo = (int) (total * p / numPartes);
+                    int pos = Arrays.binarySearch(inicioLinha, 0, linhas + 1, alvo);
+                    if (pos < 0) pos = -pos - 1;
+                    limites[p] = Math.max(limites[p - 1], Math.min(pos, linhas));
+                }
+                limites[numPartes] = linhas;
+                return limites;
+            }
+        }
+
+        private static void multiplicarLinhasCSR(MatrizCSR matriz, double[] vetor, double[] resultado,
+                int inicioLinha, int fimLinha) {
+            int[] inicio = matriz.inicioLinha;
+            int[] cols = matriz.colunasIdx;
+            double[] valores = matriz.valores;
+            for (int i = inicioLinha; i < fimLinha; i++) {
+                double soma = 0;
+                for (int k = inicio[i]; k < inicio[i + 1]; k++) {
+                    soma += valores[k] * vetor[cols[k]];
+                }
+                resultado[i] = soma;
+            }
+        }
+
+        // Versão Sequencial - SpMV (CSR)
+        public static ResultadoMultiplicacao multiplicarSequencial(MatrizCSR matriz, double[] vetor) {
+            long inicio = System.nanoTime();
+            double[] resultado = new double[matriz.linhas];
+            multiplicarLinhasCSR(matriz, vetor, resultado, 0, matriz.linhas);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        // Versão Paralela - SpMV com partição por número de linhas (referência desbalanceada)
+        public static ResultadoMultiplicacao multiplicarParaleloPorLinhas(MatrizCSR matriz, double[] vetor,
+                MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            double[] resultado = new double[matriz.linhas];
+            motor.paraCada(0, matriz.linhas, motor.getNumThreads(), (bloco, inicioLinha, fimLinha) ->
+                    multiplicarLinhasCSR(matriz, vetor, resultado, inicioLinha, fimLinha));
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        // Versão Paralela - SpMV com partição por não-zeros: cada parte tem
+        // ~nnz/numPartes elementos, independentemente de quantas linhas contém
+        public static ResultadoMultiplicacao multiplicarParalelo(MatrizCSR matriz, double[] vetor,
+                MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            double[] resultado = new double[matriz.linhas];
+            int numPartes = motor.getNumThreads();
+            int[] limites = matriz.particionarPorNaoZeros(numPartes);
+
+            motor.paraCada(0, numPartes, numPartes, (bloco, primeiraParte, ultimaParte) -> {
+                for (int p = primeiraParte; p < ultimaParte; p++) {
+                    multiplicarLinhasCSR(matriz, vetor, resultado, limites[p], limites[p + 1]);
+                }
+            });
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoMultiplicacao(resultado, tempo);
+        }
+
+        // Iteração da potência e Jacobi: threads novas por iteração x workers persistentes
+        static void executarIterativo(int[] numThreadsList) throws InterruptedException, IOException {
+            int n = 1000;
+            double tolerancia = 1e-10;
+            int maxIteracoes = 1000;
+            // Diagonal reforçada: Jacobi converge e o autovalor dominante é isolado
+            double[][] matriz = Dados.matriz(n, n, 45);
+            for (int i = 0; i < n; i++) matriz[i][i] += n;
+            MatrizDensa plana = MatrizDensa.deJagged(matriz);
+            double[] b = Dados.vetor(n, 1, 46);
+            System.out.println("Solver iterativo: " + n + "×" + n);
+
+            for (int numThreads : numThreadsList) {
+                ResultadoIterativo resThreads = iteracaoPotenciaComThreads(matriz, tolerancia, maxIteracoes, numThreads);
+                System.out.printf("Potência com Threads (%d threads): λ=%.6f, Iterações=%d, Tempo=%.3f ms, " +
+                        "Por iteração=%.1f µs\n", numThreads, resThreads.valor, resThreads.iteracoes,
+                        resThreads.tempo / 1_000_000.0, resThreads.tempo / 1_000.0 / resThreads.iteracoes);
+
+                try (SolverIterativo solver = new SolverIterativo(plana, numThreads)) {
+                    ResultadoIterativo resPotencia = solver.iteracaoPotencia(tolerancia, maxIteracoes);
+                    System.out.printf("Potência Persistente (%d threads): λ=%.6f, Iterações=%d, Tempo=%.3f ms, " +
+                            "Por iteração=%.1f µs, Speedup=%.2fx\n", numThreads, resPotencia.valor,
+                            resPotencia.iteracoes, resPotencia.tempo / 1_000_000.0,
+                            resPotencia.tempo / 1_000.0 / resPotencia.iteracoes,
+                            (double) resThreads.tempo / resPotencia.tempo);
+
+                    ResultadoIterativo resJacobi = solver.jacobi(b, tolerancia, maxIteracoes);
+                    System.out.printf("Jacobi Persistente (%d threads): ‖Δx‖/‖x‖=%.2e, Iterações=%d, " +
+                            "Convergiu=%s, Tempo=%.3f ms\n", numThreads, resJacobi.valor, resJacobi.iteracoes,
+                            resJacobi.convergiu ? "sim" : "não", resJacobi.tempo / 1_000_000.0);
+                }
+            }
+            System.out.println();
+        }
+
+        static void executarEsparsa(int[] numThreadsList) throws IOException {
+            int n = 200_000;
+            MatrizCSR matriz = MatrizCSR.gerarLeiPotencia(n, 4_000_000L, 0.9, 42);
+            double[] vetor = Dados.vetor(n, 1, 43);
+
+            System.out.printf("Matriz esparsa (lei de potência): %d×%d, nnz=%d, maior linha=%d\n",
+                    n, n, matriz.naoZeros(), matriz.inicioLinha[1] - matriz.inicioLinha[0]);
+
+            ResultadoMultiplicacao resSeq = multiplicarSequencial(matriz, vetor);
+            System.out.printf("SpMV Sequencial: Tempo=%.3f ms\n", resSeq.tempo / 1_000_000.0);
+
+            for (int numThreads : numThreadsList) {
+                MotorParalelo motor = MotorParalelo.compartilhado(numThreads);
+
+                ResultadoMultiplicacao resLinhas = multiplicarParaleloPorLinhas(matriz, vetor, motor);
+                double speedupLinhas = (double) resSeq.tempo / resLinhas.tempo;
+                System.out.printf("SpMV por Linhas (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                        "Eficiência=%.2f%%\n",
+                        numThreads, resLinhas.tempo / 1_000_000.0, speedupLinhas, speedupLinhas / numThreads * 100);
+
+                ResultadoMultiplicacao resNnz = multiplicarParalelo(matriz, vetor, motor);
+                double speedupNnz = (double) resSeq.tempo / resNnz.tempo;
+                System.out.printf("SpMV por Não-zeros (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                        "Eficiência=%.2f%%\n",
+                        numThreads, resNnz.tempo / 1_000_000.0, speedupNnz, speedupNnz / numThreads * 100);
+            }
+            System.out.println();
+        }
+
+        public static void executar() throws InterruptedException, IOException {
+            System.out.println("=== EXERCÍCIO 5: MULTIPLICAÇÃO MATRIZ × VETOR ===\n");
+            
+            int[] tamanhos = {1000, 2000, 3000};
+            int[] numThreadsList = AutoAjuste.listaThreads("exercicio5.gemv");
+            
+            for (int n : tamanhos) {
+                System.out.println("Tamanho da matriz: " + n + "×" + n);
+                
+                // Gerar matriz e vetor aleatórios (em paralelo, ou do cache de dados)
+                double[][] matriz = Dados.matriz(n, n, 42);
+                double[] vetor = Dados.vetor(n, 1, 43);
+                
+                // Versão sequencial
+                ResultadoMultiplicacao resSeq = multiplicarSequencial(matriz, vetor);
+                System.out.printf("Sequencial: Tempo=%.3f ms\n", resSeq.tempo / 1_000_000.0);
+
+                MatrizDensa plana = MatrizDensa.deJagged(matriz);
+                ResultadoMultiplicacao resPlana = multiplicarSequencial(plana, vetor);
+                System.out.printf("Sequencial Plana: Tempo=%.3f ms, Speedup=%.2fx, Núcleo=%s\n",
+                        resPlana.tempo / 1_000_000.0, (double) resSeq.tempo / resPlana.tempo,
+                        nomeNucleoProdutoEscalar());
+
+                // Versões paralelas
+                for (int numThreads : numThreadsList) {
+                    ResultadoMultiplicacao resPar = multiplicarParalelo(matriz, vetor, numThreads);
+                    double speedup = (double) resSeq.tempo / resPar.tempo;
+                    double eficiencia = speedup / numThreads;
+                    
+                    System.out.printf("Paralelo (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                            "Eficiência=%.2f%%\n",
+                            numThreads, resPar.tempo / 1_000_000.0, speedup, eficiencia * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoMultiplicacao resMotor = multiplicarParalelo(matriz, vetor,
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupMotor = (double) resSeq.tempo / resMotor.tempo;
+                    double eficienciaMotor = speedupMotor / numThreads;
+
+                    System.out.printf("Paralelo Motor (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                            "Eficiência=%.2f%%\n",
+                            numThreads, resMotor.tempo / 1_000_000.0, speedupMotor, eficienciaMotor * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoMultiplicacao resPlanaPar = multiplicarParalelo(plana, vetor,
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupPlana = (double) resSeq.tempo / resPlanaPar.tempo;
+
+                    System.out.printf("Plana Motor (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                            "Eficiência=%.2f%%\n",
+                            numThreads, resPlanaPar.tempo / 1_000_000.0, speedupPlana, speedupPlana / numThreads * 100);
+                }
+
+                // Lote de vetores sobre a mesma matriz
+                int numVetores = 32;
+                MatrizDensa vetores = MatrizDensa.deJagged(Dados.matriz(numVetores, n, 44));
+
+                ResultadoLote resLoteSeq = multiplicarLoteSequencial(plana, vetores);
+                System.out.printf("Lote Sequencial (%d vetores): Tempo=%.3f ms, GFLOP/s=%.2f\n",
+                        numVetores, resLoteSeq.tempo / 1_000_000.0, resLoteSeq.gflops);
+
+                for (int numThreads : numThreadsList) {
+                    ResultadoLote resLote = multiplicarLote(plana, vetores, MotorParalelo.compartilhado(numThreads));
+                    double speedupLote = (double) resLoteSeq.tempo / resLote.tempo;
+
+                    System.out.printf("Lote Tiles (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                            "Eficiência=%.2f%%, GFLOP/s=%.2f\n",
+                            numThreads, resLote.tempo / 1_000_000.0, speedupLote,
+                            speedupLote / numThreads * 100, resLote.gflops);
+                }
+                System.out.println();
+            }
+
+            executarEsparsa(numThreadsList);
+            executarIterativo(numThreadsList);
+        }
+    }
+
+    static class Exercicio6 {
+        
+        static class ResultadoPrimos extends Resultado {
+            long count;
+            
+            ResultadoPrimos(long count, long tempo) {
+                super(tempo);
+                this.count = count;
+            }
+        }
+        
+        // Verificar se um número é primo
+        private static boolean ehPrimo(int n) {
+            if (n < 2) return false;
+            if (n == 2) return true;
+            if (n % 2 == 0) return false;
+            
+            int limite = (int) Math.sqrt(n);
+            for (int i = 3; i <= limite; i += 2) {
+                if (n % i == 0) return false;
+            }
+            return true;
+        }
+        
+        // Versão Sequencial
+        public static ResultadoPrimos contarPrimosSequencial(int n) {
+            long inicio = System.nanoTime();
+            int count = 0;
+            
+            for (int i = 1; i <= n; i++) {
+                if (ehPrimo(i)) count++;
+            }
+            
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoPrimos(count, tempo);
+        }
+        
+        // Versão Paralela - Partição Estática
+        public static ResultadoPrimos contarPrimosParaleloEstatico(int n, int numThreads) 
+                throws InterruptedException {
+            long inicio = System.nanoTime();
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(numThreads, numThreads);
+            int[] countsParciais = new int[numThreads];
+            Thread[] threads = new Thread[numThreads];
+            
+            int numeroPorThread = n / numThreads;
+            
+            for (int i = 0; i < numThreads; i++) {
+                final int threadId = i;
+                final int inicioRange = i * numeroPorThread + 1;
+                final int fimRange = (i == numThreads - 1) ? n : (i + 1) * numeroPorThread;
+                
+                threads[i] = new Thread(() -> {
+                    long t0 = medicao != null ? System.nanoTime() : 0;
+                    int countParcial = 0;
+                    for (int num = inicioRange; num <= fimRange; num++) {
+                        if (ehPrimo(num)) countParcial++;
+                    }
+                    countsParciais[threadId] = countParcial;
+                    if (medicao != null) medicao.registrar(threadId, threadId, t0, System.nanoTime(), fimRange - inicioRange + 1);
+                });
+                Instrumentacao.iniciar(threads[i], medicao);
+            }
+            
+            for (Thread thread : threads) {
+                Instrumentacao.juntar(thread, medicao);
+            }
+            
+            int countTotal = 0;
+            for (int count : countsParciais) {
+                countTotal += count;
+            }
+            
+            long tempo = System.nanoTime() - inicio;
+            if (medicao != null) Instrumentacao.fechar(medicao, inicio, inicio + tempo);
+            return new ResultadoPrimos(countTotal, tempo);
+        }
+        
+        // Versão Paralela - Partição Dinâmica
+        public static ResultadoPrimos contarPrimosParaleloDinamico(int n, int numThreads) 
+                throws InterruptedException {
+            long inicio = System.nanoTime();
+            AtomicInteger proximoNumero = new AtomicInteger(1);
+            AtomicInteger countTotal = new AtomicInteger(0);
+            Thread[] threads = new Thread[numThreads];
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(numThreads, numThreads);
+            
+            int tamanhoBloco = 1000;
+            
+            for (int i = 0; i < numThreads; i++) {
+                final int threadId = i;
+                threads[i] = new Thread(() -> {
+                    long t0 = medicao != null ? System.nanoTime() : 0;
+                    long itens = 0;
+                    long blocos = 0;
+                    while (true) {
+                        int inicio_bloco = proximoNumero.getAndAdd(tamanhoBloco);
+                        if (inicio_bloco > n) break;
+                        
+                        int fim_bloco = Math.min(inicio_bloco + tamanhoBloco - 1, n);
+                        int countLocal = 0;
+                        
+                        for (int num = inicio_bloco; num <= fim_bloco; num++) {
+                            if (ehPrimo(num)) countLocal++;
+                        }
+                        
+                        countTotal.addAndGet(countLocal);
+                        itens += fim_bloco - inicio_bloco + 1;
+                        blocos++;
+                    }
+                    if (medicao != null) {
+                        medicao.registrar(threadId, threadId, t0, System.nanoTime(), itens);
+                        medicao.contar(threadId, blocos, 0);
+                    }
+                });
+                Instrumentacao.iniciar(threads[i], medicao);
+            }
+            
+            for (Thread thread : threads) {
+                Instrumentacao.juntar(thread, medicao);
+            }
+            
+            long tempo = System.nanoTime() - inicio;
+            if (medicao != null) Instrumentacao.fechar(medicao, inicio, inicio + tempo);
+            return new ResultadoPrimos(countTotal.get(), tempo);
+        }
+
+        // Conta primos no intervalo [inicio, fim)
+        private static long contarIntervalo(int inicio, int fim) {
+            long countParcial = 0;
+            for (int num = inicio; num < fim; num++) {
+                if (ehPrimo(num)) countParcial++;
+            }
+            return countParcial;
+        }
+
+        // Versão Paralela - Partição Estática com motor persistente
+        public static ResultadoPrimos contarPrimosParaleloEstatico(int n, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            long count = motor.reduzirLong(1, n + 1, motor.getNumThreads(),
+                    Exercicio6::contarIntervalo);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoPrimos(count, tempo);
+        }
+
+        // Versão Paralela - Partição Dinâmica com motor persistente
+        // (blocos pequenos balanceados pelo work-stealing do pool)
+        public static ResultadoPrimos contarPrimosParaleloDinamico(int n, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int paralelismo = AutoAjuste.paralelismo("exercicio6.dinamico", motor);
+            int tamanhoBloco = AutoAjuste.inteiro("exercicio6.dinamico.bloco", 1000);
+            int numBlocos = (n + tamanhoBloco - 1) / tamanhoBloco;
+            if (paralelismo < motor.getNumThreads()) numBlocos = Math.min(numBlocos, paralelismo);
+            long count = motor.reduzirLong(1, n + 1, numBlocos,
+                    Exercicio6::contarIntervalo);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoPrimos(count, tempo);
+        }
+
+        // Versão Paralela - Escalonador adaptativo: pedaços guiados, faixas por
+        // worker com roubo de trabalho e contadores por thread (sem AtomicInteger
+        // compartilhado)
+        public static ResultadoPrimos contarPrimosParaleloAdaptativo(int n, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            EscalonadorIntervalos escalonador = new EscalonadorIntervalos(motor, 0);
+            long count = escalonador.executar(1, n + 1, Exercicio6::contarIntervalo);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoPrimos(count, tempo);
+        }
+
+        // Crivo de Eratóstenes segmentado, apenas ímpares: o bit i de um segmento
+        // representa o número ímpar 2 * (base + i) + 1. Cada segmento ocupa 32 KB
+        // (L1); os primos-base até sqrt(limite) são compartilhados somente leitura.
+        static class CrivoSegmentado {
+            static final int PALAVRAS_SEGMENTO = 4096;
+            static final int IMPARES_SEGMENTO = PALAVRAS_SEGMENTO * 64;
+
+            private final long limite;
+            private final int[] primosBase;
+            private final long numImpares;
+
+            CrivoSegmentado(long limite) {
+                this.limite = limite;
+                this.primosBase = primosImparesAte((int) Math.sqrt((double) limite) + 1);
+                this.numImpares = limite < 1 ? 0 : (limite + 1) / 2;
+            }
+
+            int numSegmentos() {
+                return (int) ((numImpares + IMPARES_SEGMENTO - 1) / IMPARES_SEGMENTO);
+            }
+
+            // Primos ímpares até limite (crivo simples sobre boolean[])
+            static int[] primosImparesAte(int limite) {
+                boolean[] composto = new boolean[limite + 1];
+                int count = 0;
+                for (int i = 3; i <= limite; i += 2) {
+                    if (composto[i]) continue;
+                    count++;
+                    for (long j = (long) i * i; j <= limite; j += 2L * i) {
+                        composto[(int) j] = true;
+                    }
+                }
+                int[] primos = new int[count];
+                int k = 0;
+                for (int i = 3; i <= limite; i += 2) {
+                    if (!composto[i]) primos[k++] = i;
+                }
+                return primos;
+            }
+
+            // Conta os primos ímpares nos segmentos [primeiro, ultimo), reutilizando o bitset
+            long contarSegmentos(int primeiro, int ultimo) {
+                long[] bits = new long[PALAVRAS_SEGMENTO];
+                long count = 0;
+                for (int s = primeiro; s < ultimo; s++) {
+                    count += contarSegmento(s, bits);
+                }
+                return count;
+            }
+
+            // Marca os compostos do segmento s em bits e devolve a quantidade de primos ímpares
+            long contarSegmento(int s, long[] bits) {
+                long base = (long) s * IMPARES_SEGMENTO;
+                int tamanho = (int) Math.min(IMPARES_SEGMENTO, numImpares - base);
+                long primeiroValor = 2 * base + 1;
+                long ultimoValor = primeiroValor + 2L * (tamanho - 1);
+                Arrays.fill(bits, 0L);
+
+                for (int p : primosBase) {
+                    long quadrado = (long) p * p;
+                    if (quadrado > ultimoValor) break;
+                    long multiplo = Math.max(quadrado, (primeiroValor + p - 1) / p * p);
+                    if ((multiplo & 1) == 0) multiplo += p;
+                    for (long i = (multiplo - primeiroValor) >> 1; i < tamanho; i += p) {
+                        bits[(int) (i >>> 6)] |= 1L << i;
+                    }
+                }
+                if (s == 0) bits[0] |= 1L; // 1 não é primo
+
+                long count = 0;
+                int palavrasCheias = tamanho >>> 6;
+                for (int w = 0; w < palavrasCheias; w++) {
+                    count += Long.bitCount(~bits[w]);
+                }
+                int resto = tamanho & 63;
+                if (resto != 0) {
+                    count += Long.bitCount(~bits[palavrasCheias] & ((1L << resto) - 1));
+                }
+                return count;
+            }
+
+            // O 2 é o único primo par
+            long contarPar() {
+                return limite >= 2 ? 1 : 0;
+            }
+        }
+
+        // Versão Sequencial - Crivo segmentado (aceita limites acima de int)
+        public static ResultadoPrimos contarPrimosCrivo(long n) {
+            long inicio = System.nanoTime();
+            CrivoSegmentado crivo = new CrivoSegmentado(n);
+            long count = crivo.contarPar() + crivo.contarSegmentos(0, crivo.numSegmentos());
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoPrimos(count, tempo);
+        }
+
+        // Versão Paralela - Crivo segmentado: segmentos independentes distribuídos
+        // pelo motor; cada tarefa reutiliza um único bitset para seus segmentos
+        public static ResultadoPrimos contarPrimosCrivo(long n, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            CrivoSegmentado crivo = new CrivoSegmentado(n);
+            int numSegmentos = crivo.numSegmentos();
+            long count = crivo.contarPar() + motor.reduzirLong(0, numSegmentos,
+                    motor.getNumThreads() * 4, crivo::contarSegmentos);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoPrimos(count, tempo);
+        }
+
+        // Índice persistente de π(x): para cada bloco de ímpares do CrivoSegmentado
+        // guarda a contagem acumulada dos blocos anteriores e o bitset do bloco.
+        // count(a, b) custa O(1) + varredura de um bloco; o índice é estendido sob
+        // demanda e mantido em disco. Os bitsets lidos ficam num cache LRU limitado.
+        //
+        // Arquivo (little-endian): cabeçalho [magic, versão, ímpares/bloco, numBlocos]
+        // seguido de um registro por bloco [acumulado (long), bitset (4096 longs)].
+        static class IndicePrimos implements AutoCloseable {
+            static final long MAGIC = 0x5049_5849_4E44_4558L;
+            static final int VERSAO = 1;
+            static final int TAMANHO_CABECALHO = 32;
+            static final int TAMANHO_REGISTRO = Long.BYTES * (1 + CrivoSegmentado.PALAVRAS_SEGMENTO);
+            // Blocos crivados por vez ao estender (~2 MB de bitsets em memória)
+            static final int BLOCOS_POR_EXTENSAO = 64;
+
+            private final FileChannel canal;
+            private final MotorParalelo motor;
+            private final LinkedHashMap<Integer, long[]> cache;
+            private MappedByteBuffer mapa;
+            private long[] acumulado = new long[0];
+            private int numBlocos;
+
+            IndicePrimos(Path arquivo, int capacidadeCache, MotorParalelo motor) throws IOException {
+                this.motor = motor;
+                this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Integer, long[]> maisAntigo) {
+                        return size() > capacidadeCache;
+                    }
+                };
+                this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                if (canal.size() == 0) {
+                    gravarCabecalho();
+                    return;
+                }
+                try {
+                    carregar();
+                } catch (IOException e) {
+                    canal.close();
+                    throw e;
+                }
+            }
+
+            private void gravarCabecalho() throws IOException {
+                ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).order(ByteOrder.LITTLE_ENDIAN);
+                cabecalho.putLong(MAGIC).putInt(VERSAO)
+                        .putInt(CrivoSegmentado.IMPARES_SEGMENTO).putInt(numBlocos).flip();
+                while (cabecalho.hasRemaining()) {
+                    canal.write(cabecalho, cabecalho.position());
+                }
+            }
+
+            private void carregar() throws IOException {
+                if (canal.size() < TAMANHO_CABECALHO) {
+                    throw new IOException("Arquivo de índice truncado");
+                }
+                remapear();
+                if (mapa.getLong(0) != MAGIC || mapa.getInt(8) != VERSAO
+                        || mapa.getInt(12) != CrivoSegmentado.IMPARES_SEGMENTO) {
+                    throw new IOException("Arquivo de índice incompatível");
+                }
+                numBlocos = mapa.getInt(16);
+                // Registros gravados depois do cabeçalho: um arquivo cortado no meio não é confiável
+                if (numBlocos < 0 || canal.size() < posicaoRegistro(numBlocos)) {
+                    throw new IOException("Arquivo de índice truncado");
+                }
+                acumulado = new long[numBlocos];
+                for (int b = 0; b < numBlocos; b++) {
+                    acumulado[b] = mapa.getLong((int) posicaoRegistro(b));
+                }
+            }
+
+            private void remapear() throws IOException {
+                mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                mapa.order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            private static long posicaoRegistro(int bloco) {
+                return TAMANHO_CABECALHO + (long) bloco * TAMANHO_REGISTRO;
+            }
+
+            // Maior x coberto pelo índice sem extensão
+            synchronized long limiteIndexado() {
+                return 2L * numBlocos * CrivoSegmentado.IMPARES_SEGMENTO;
+            }
+
+            // Quantidade de primos em [a, b]
+            synchronized long contar(long a, long b) throws IOException {
+                if (b < a) return 0;
+                return pi(b) - pi(a - 1);
+            }
+
+            // π(x): quantidade de primos <= x
+            synchronized long pi(long x) throws IOException {
+                if (x < 2) return 0;
+                long k = (x - 1) / 2; // índice do maior ímpar <= x
+                int bloco = (int) (k / CrivoSegmentado.IMPARES_SEGMENTO);
+                int offset = (int) (k % CrivoSegmentado.IMPARES_SEGMENTO);
+                if (bloco >= numBlocos) {
+                    estender(bloco + 1);
+                }
+
+                long[] bits = segmento(bloco);
+                long count = 1 + acumulado[bloco]; // 1 = o primo 2
+                int palavra = offset >>> 6;
+                for (int w = 0; w < palavra; w++) {
+                    count += Long.bitCount(~bits[w]);
+                }
+                long mascara = (offset & 63) == 63 ? -1L : (1L << ((offset & 63) + 1)) - 1;
+                count += Long.bitCount(~bits[palavra] & mascara);
+                return count;
+            }
+
+            private long[] segmento(int bloco) {
+                long[] bits = cache.get(bloco);
+                if (bits == null) {
+                    bits = new long[CrivoSegmentado.PALAVRAS_SEGMENTO];
+                    long posicao = posicaoRegistro(bloco) + Long.BYTES;
+                    for (int w = 0; w < bits.length; w++) {
+                        bits[w] = mapa.getLong((int) (posicao + (long) w * Long.BYTES));
+                    }
+                    cache.put(bloco, bits);
+                }
+                return bits;
+            }
+
+            // Estende até pelo menos blocosNecessarios (no mínimo dobra, para amortizar)
+            private void estender(int blocosNecessarios) throws IOException {
+                int alvo = Math.max(blocosNecessarios, numBlocos * 2);
+                if (posicaoRegistro(alvo) > Integer.MAX_VALUE) {
+                    alvo = blocosNecessarios;
+                    if (posicaoRegistro(alvo) > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Limite além da capacidade do índice mapeado");
+                    }
+                }
+                CrivoSegmentado crivo = new CrivoSegmentado(2L * alvo * CrivoSegmentado.IMPARES_SEGMENTO - 1);
+                long[] novoAcumulado = Arrays.copyOf(acumulado, alvo);
+                long total = numBlocos == 0 ? 0 : acumulado[numBlocos - 1] + contarBloco(numBlocos - 1);
+
+                ByteBuffer registro = ByteBuffer.allocateDirect(TAMANHO_REGISTRO).order(ByteOrder.LITTLE_ENDIAN);
+                for (int lote = numBlocos; lote < alvo; lote += BLOCOS_POR_EXTENSAO) {
+                    int primeiro = lote;
+                    int ultimo = Math.min(lote + BLOCOS_POR_EXTENSAO, alvo);
+                    long[][] bitsLote = new long[ultimo - primeiro][CrivoSegmentado.PALAVRAS_SEGMENTO];
+                    long[] countsLote = new long[ultimo - primeiro];
+                    motor.paraCada(primeiro, ultimo, ultimo - primeiro, (tarefa, ini, fim) -> {
+                        for (int b = ini; b < fim; b++) {
+                            countsLote[b - primeiro] = crivo.contarSegmento(b, bitsLote[b - primeiro]);
+                        }
+                    });
+
+                    for (int b = primeiro; b < ultimo; b++) {
+                        novoAcumulado[b] = total;
+                        registro.clear();
+                        registro.putLong(total);
+                        total += countsLote[b - primeiro];
+                        for (long palavra : bitsLote[b - primeiro]) {
+                            registro.putLong(palavra);
+                        }
+                        registro.flip();
+                        long posicao = posicaoRegistro(b);
+                        while (registro.hasRemaining()) {
+                            posicao += canal.write(registro, posicao);
+                        }
+                    }
+                }
+
+                numBlocos = alvo;
+                acumulado = novoAcumulado;
+                gravarCabecalho();
+                remapear();
+            }
+
+            private long contarBloco(int bloco) {
+                long count = 0;
+                for (long palavra : segmento(bloco)) {
+                    count += Long.bitCount(~palavra);
+                }
+                return count;
+            }
+
+            @Override
+            public synchronized void close() throws IOException {
+                cache.clear();
+                canal.close();
+            }
+        }
+
+        // Demonstração: consultas ao índice, antes e depois de reabrir do disco
+        static void executarIndice() throws IOException {
+            Path arquivo = Files.createTempFile("indice-primos-", ".bin");
+            MotorParalelo motor = MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+            long[][] consultas = {{1, 1_000_000}, {1_000_000, 10_000_000}, {99_000_000, 100_000_000}, {1, 100_000_000}};
+            try {
+                try (IndicePrimos indice = new IndicePrimos(arquivo, 64, motor)) {
+                    for (long[] consulta : consultas) {
+                        long inicio = System.nanoTime();
+                        long count = indice.contar(consulta[0], consulta[1]);
+                        System.out.printf("Índice [%d, %d]: Count=%d, Tempo=%.3f ms\n",
+                                consulta[0], consulta[1], count, (System.nanoTime() - inicio) / 1_000_000.0);
+                    }
+                }
+                try (IndicePrimos indice = new IndicePrimos(arquivo, 64, motor)) {
+                    for (long[] consulta : consultas) {
+                        long inicio = System.nanoTime();
+                        long count = indice.contar(consulta[0], consulta[1]);
+                        System.out.printf("Índice reaberto [%d, %d]: Count=%d, Tempo=%.3f ms\n",
+                                consulta[0], consulta[1], count, (System.nanoTime() - inicio) / 1_000_000.0);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+
+        public static void executar() throws InterruptedException, IOException {
+            System.out.println("=== EXERCÍCIO 6: CONTAGEM DE NÚMEROS PRIMOS ===\n");
+            
+            int[] limites = {100_000, 500_000, 1_000_000};
+            int[] numThreadsList = AutoAjuste.listaThreads("exercicio6.dinamico");
+            
+            for (int limite : limites) {
+                System.out.println("Limite: " + limite);
+                
+                // Versão sequencial
+                ResultadoPrimos resSeq = contarPrimosSequencial(limite);
+                System.out.printf("Sequencial: Count=%d, Tempo=%.3f ms\n",
+                        resSeq.count, resSeq.tempo / 1_000_000.0);
+                
+                // Versões paralelas
+                for (int numThreads : numThreadsList) {
+                    ResultadoPrimos resEstatico = contarPrimosParaleloEstatico(limite, numThreads);
+                    double speedupEstatico = (double) resSeq.tempo / resEstatico.tempo;
+                    double eficienciaEstatico = speedupEstatico / numThreads;
+                    
+                    System.out.printf("Paralelo Estático (%d threads): Count=%d, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resEstatico.count, resEstatico.tempo / 1_000_000.0, 
+                            speedupEstatico, eficienciaEstatico * 100);
+                    Instrumentacao.imprimirUltima();
+                    
+                    ResultadoPrimos resDinamico = contarPrimosParaleloDinamico(limite, numThreads);
+                    double speedupDinamico = (double) resSeq.tempo / resDinamico.tempo;
+                    double eficienciaDinamico = speedupDinamico / numThreads;
+                    
+                    System.out.printf("Paralelo Dinâmico (%d threads): Count=%d, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resDinamico.count, resDinamico.tempo / 1_000_000.0, 
+                            speedupDinamico, eficienciaDinamico * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    MotorParalelo motor = MotorParalelo.compartilhado(numThreads);
+                    ResultadoPrimos resMotorEstatico = contarPrimosParaleloEstatico(limite, motor);
+                    double speedupMotorEstatico = (double) resSeq.tempo / resMotorEstatico.tempo;
+
+                    System.out.printf("Motor Estático (%d threads): Count=%d, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resMotorEstatico.count, resMotorEstatico.tempo / 1_000_000.0,
+                            speedupMotorEstatico, speedupMotorEstatico / numThreads * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoPrimos resMotorDinamico = contarPrimosParaleloDinamico(limite, motor);
+                    double speedupMotorDinamico = (double) resSeq.tempo / resMotorDinamico.tempo;
+
+                    System.out.printf("Motor Dinâmico (%d threads): Count=%d, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resMotorDinamico.count, resMotorDinamico.tempo / 1_000_000.0,
+                            speedupMotorDinamico, speedupMotorDinamico / numThreads * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoPrimos resAdaptativo = contarPrimosParaleloAdaptativo(limite, motor);
+                    double speedupAdaptativo = (double) resSeq.tempo / resAdaptativo.tempo;
+
+                    System.out.printf("Adaptativo (%d threads): Count=%d, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resAdaptativo.count, resAdaptativo.tempo / 1_000_000.0,
+                            speedupAdaptativo, speedupAdaptativo / numThreads * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoPrimos resCrivo = contarPrimosCrivo(limite, motor);
+                    double speedupCrivo = (double) resSeq.tempo / resCrivo.tempo;
+
+                    System.out.printf("Crivo Segmentado (%d threads): Count=%d, Tempo=%.3f ms, " +
+                            "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                            numThreads, resCrivo.count, resCrivo.tempo / 1_000_000.0,
+                            speedupCrivo, speedupCrivo / numThreads * 100);
+                }
+                System.out.println();
+            }
+
+            // Crivo em limites fora do alcance da divisão por tentativa
+            long limiteGrande = 3_000_000_000L;
+            ResultadoPrimos resCrivoSeq = contarPrimosCrivo(limiteGrande);
+            System.out.printf("Crivo Sequencial (limite %d): Count=%d, Tempo=%.3f ms\n",
+                    limiteGrande, resCrivoSeq.count, resCrivoSeq.tempo / 1_000_000.0);
+            for (int numThreads : numThreadsList) {
+                ResultadoPrimos resCrivo = contarPrimosCrivo(limiteGrande, MotorParalelo.compartilhado(numThreads));
+                double speedupCrivo = (double) resCrivoSeq.tempo / resCrivo.tempo;
+                System.out.printf("Crivo Segmentado (%d threads, limite %d): Count=%d, Tempo=%.3f ms, " +
+                        "Speedup=%.2fx, Eficiência=%.2f%%\n",
+                        numThreads, limiteGrande, resCrivo.count, resCrivo.tempo / 1_000_000.0,
+                        speedupCrivo, speedupCrivo / numThreads * 100);
+            }
+            System.out.println();
+
+            executarIndice();
+        }
+    }
+    
+    static class Exercicio7 {
+        
+        static class ResultadoFiltro extends Resultado {
+            int[][] imagemSaida;
+            
+            ResultadoFiltro(int[][] imagemSaida, long tempo) {
+                super(tempo);
+                this.imagemSaida = imagemSaida;
+            }
+        }
+        
+        // Aplicar blur 3x3 em uma posição
+        private static int aplicarBlur(int[][] imagem, int i, int j) {
+            int soma = 0;
+            int count = 0;
+            
+            for (int di = -1; di <= 1; di++) {
+                for (int dj = -1; dj <= 1; dj++) {
+                    int ni = i + di;
+                    int nj = j + dj;
+                    
+                    if (ni >= 0 && ni < imagem.length && nj >= 0 && nj < imagem[0].length) {
+                        soma += imagem[ni][nj];
+                        count++;
+                    }
+                }
+            }
+            
+            return soma / count;
+        }
+        
+        // Versão Sequencial
+        public static ResultadoFiltro aplicarFiltroSequencial(int[][] imagem) {
+            long inicio = System.nanoTime();
+            int altura = imagem.length;
+            int largura = imagem[0].length;
+            int[][] imagemSaida = new int[altura][largura];
+            
+            for (int i = 0; i < altura; i++) {
+                for (int j = 0; j < largura; j++) {
+                    imagemSaida[i][j] = aplicarBlur(imagem, i, j);
+                }
+            }
+            
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoFiltro(imagemSaida, tempo);
+        }
+        
+        // Versão Paralela
+        public static ResultadoFiltro aplicarFiltroParalelo(int[][] imagem, int numThreads) 
+                throws InterruptedException {
+            long inicio = System.nanoTime();
+            int altura = imagem.length;
+            int largura = imagem[0].length;
+            int[][] imagemSaida = new int[altura][largura];
+            Instrumentacao.Medicao medicao = Instrumentacao.abrir(numThreads, numThreads);
+            
+            int linhasPorThread = altura / numThreads;
+            Thread[] threads = new Thread[numThreads];
+            
+            for (int i = 0; i < numThreads; i++) {
+                final int threadId = i;
+                final int inicioLinha = i * linhasPorThread;
+                final int fimLinha = (i == numThreads - 1) ? altura : (i + 1) * linhasPorThread;
+                
+                threads[i] = new Thread(() -> {
+                    long t0 = medicao != null ? System.nanoTime() : 0;
+                    for (int linha = inicioLinha; linha < fimLinha; linha++) {
+                        for (int col = 0; col < largura; col++) {
+                            imagemSaida[linha][col] = aplicarBlur(imagem, linha, col);
+                        }
+                    }
+                    if (medicao != null) medicao.registrar(threadId, threadId, t0, System.nanoTime(),
+                            (long) (fimLinha - inicioLinha) * largura);
+                });
+                Instrumentacao.iniciar(threads[i], medicao);
+            }
+            
+            for (Thread thread : threads) {
+                Instrumentacao.juntar(thread, medicao);
+            }
+
+            long tempo = System.nanoTime() - inicio;
+            if (medicao != null) Instrumentacao.fechar(medicao, inicio, inicio + tempo);
+            return new ResultadoFiltro(imagemSaida, tempo);
+        }
+
+        // Versão Paralela - Motor persistente
+        public static ResultadoFiltro aplicarFiltroParalelo(int[][] imagem, MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int altura = imagem.length;
+            int largura = imagem[0].length;
+            int[][] imagemSaida = new int[altura][largura];
+
+            motor.paraCada(0, altura, motor.getNumThreads(), (bloco, inicioLinha, fimLinha) -> {
+                for (int linha = inicioLinha; linha < fimLinha; linha++) {
+                    for (int col = 0; col < largura; col++) {
+                        imagemSaida[linha][col] = aplicarBlur(imagem, linha, col);
+                    }
+                }
+            });
+
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoFiltro(imagemSaida, tempo);
+        }
+
+        // Imagem compactada de 8 bits: canais intercalados (1 = cinza, 3 = RGB, 4 = RGBA),
+        // linhas contíguas com passo (stride) alinhado. Os dados podem estar no heap,
+        // fora do heap ou mapeados diretamente de um arquivo PGM/PPM.
+        static class Imagem {
+            static final int ALINHAMENTO = 64;
+            static final int CABECALHO_MAXIMO = 1024;
+
+            final int largura;
+            final int altura;
+            final int canais;
+            final int stride;
+            // Posição do primeiro pixel em dados (tamanho do cabeçalho em arquivos mapeados)
+            final int deslocamento;
+            final ByteBuffer dados;
+
+            private Imagem(int largura, int altura, int canais, int stride, int deslocamento, ByteBuffer dados) {
+                if (canais != 1 && canais != 3 && canais != 4) {
+                    throw new IllegalArgumentException("Canais suportados: 1, 3 ou 4: " + canais);
+                }
+                this.largura = largura;
+                this.altura = altura;
+                this.canais = canais;
+                this.stride = stride;
+                this.deslocamento = deslocamento;
+                this.dados = dados;
+            }
+
+            private static int strideAlinhado(int largura, int canais) {
+                long bytes = (long) largura * canais;
+                return (int) ((bytes + ALINHAMENTO - 1) / ALINHAMENTO * ALINHAMENTO);
+            }
+
+            static Imagem criar(int largura, int altura, int canais) {
+                int stride = strideAlinhado(largura, canais);
+                return new Imagem(largura, altura, canais, stride, 0,
+                        ByteBuffer.wrap(new byte[Math.multiplyExact(stride, altura)]));
+            }
+
+            static Imagem criarForaDoHeap(int largura, int altura, int canais) {
+                int stride = strideAlinhado(largura, canais);
+                return new Imagem(largura, altura, canais, stride, 0,
+                        ByteBuffer.allocateDirect(Math.multiplyExact(stride, altura)));
+            }
+
+            // Converte a matriz de tons de cinza usada pelas outras versões
+            static Imagem deMatriz(int[][] pixels) {
+                Imagem imagem = criar(pixels[0].length, pixels.length, 1);
+                for (int i = 0; i < imagem.altura; i++) {
+                    for (int j = 0; j < imagem.largura; j++) {
+                        imagem.set(i, j, 0, pixels[i][j]);
+                    }
+                }
+                return imagem;
+            }
+
+            int[][] paraMatriz(int canal) {
+                int[][] pixels = new int[altura][largura];
+                for (int i = 0; i < altura; i++) {
+                    for (int j = 0; j < largura; j++) {
+                        pixels[i][j] = get(i, j, canal);
+                    }
+                }
+                return pixels;
+            }
+
+            int indice(int i, int j, int canal) {
+                return deslocamento + i * stride + j * canais + canal;
+            }
+
+            int get(int i, int j, int canal) {
+                return dados.get(indice(i, j, canal)) & 0xFF;
+            }
+
+            void set(int i, int j, int canal, int valor) {
+                dados.put(indice(i, j, canal), (byte) valor);
+            }
+
+            boolean mesmoFormato(Imagem outra) {
+                return largura == outra.largura && altura == outra.altura && canais == outra.canais;
+            }
+
+            boolean mesmosPixels(Imagem outra) {
+                if (!mesmoFormato(outra)) return false;
+                for (int i = 0; i < altura; i++) {
+                    for (int k = 0; k < largura * canais; k++) {
+                        if (dados.get(indice(i, 0, 0) + k) != outra.dados.get(outra.indice(i, 0, 0) + k)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+
+            // Grava no disco as alterações de uma imagem mapeada em modo escrita
+            void sincronizar() {
+                if (dados instanceof MappedByteBuffer) {
+                    ((MappedByteBuffer) dados).force();
+                }
+            }
+
+            // Lê o cabeçalho P5/P6 de 8 bits: {largura, altura, canais, deslocamento dos pixels}
+            static int[] lerCabecalho(FileChannel canal, Path caminho) throws IOException {
+                ByteBuffer cabecalho = ByteBuffer.allocate((int) Math.min(canal.size(), CABECALHO_MAXIMO));
+                while (cabecalho.hasRemaining() && canal.read(cabecalho, cabecalho.position()) >= 0) {
+                }
+                cabecalho.flip();
+                try {
+                    String magico = lerToken(cabecalho);
+                    int canais = "P5".equals(magico) ? 1 : "P6".equals(magico) ? 3 : 0;
+                    if (canais == 0) {
+                        throw new IOException("Formato não suportado (esperado P5 ou P6): " + magico);
+                    }
+                    int largura = Integer.parseInt(lerToken(cabecalho));
+                    int altura = Integer.parseInt(lerToken(cabecalho));
+                    int maximo = Integer.parseInt(lerToken(cabecalho));
+                    if (maximo <= 0 || maximo > 255) {
+                        throw new IOException("Apenas 8 bits por amostra: maxval=" + maximo);
+                    }
+                    // Um único espaço separa o cabeçalho dos pixels
+                    int deslocamento = cabecalho.position() + 1;
+                    if (deslocamento + (long) largura * altura * canais > canal.size()) {
+                        throw new IOException("Arquivo truncado: " + caminho);
+                    }
+                    return new int[] {largura, altura, canais, deslocamento};
+                } catch (NumberFormatException e) {
+                    throw new IOException("Cabeçalho PNM inválido: " + caminho, e);
+                }
+            }
+
+            static byte[] cabecalho(int largura, int altura, int canais) {
+                if (canais != 1 && canais != 3) {
+                    throw new IllegalArgumentException("PNM suporta 1 (P5) ou 3 (P6) canais: " + canais);
+                }
+                return String.format("P%d\n%d %d\n255\n", canais == 1 ? 5 : 6, largura, altura)
+                        .getBytes(StandardCharsets.US_ASCII);
+            }
+
+            // Mapeia um PGM (P5) ou PPM (P6) binário de 8 bits sem copiar os pixels
+            static Imagem mapear(Path caminho, boolean escrita) throws IOException {
+                StandardOpenOption[] opcoes = escrita
+                        ? new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE}
+                        : new StandardOpenOption[] {StandardOpenOption.READ};
+                try (FileChannel canal = FileChannel.open(caminho, opcoes)) {
+                    int[] formato = lerCabecalho(canal, caminho);
+                    int largura = formato[0];
+                    int canais = formato[2];
+                    long tamanho = formato[3] + (long) largura * formato[1] * canais;
+                    if (tamanho > Integer.MAX_VALUE) {
+                        throw new IOException("Arquivo maior que 2 GB (use FiltroEmFaixas): " + caminho);
+                    }
+                    MappedByteBuffer mapa = canal.map(escrita ? FileChannel.MapMode.READ_WRITE
+                            : FileChannel.MapMode.READ_ONLY, 0, tamanho);
+                    return new Imagem(largura, formato[1], canais, largura * canais, formato[3], mapa);
+                }
+            }
+
+            // Cria o arquivo PGM/PPM e devolve a imagem mapeada para escrita direta
+            static Imagem criarArquivo(Path caminho, int largura, int altura, int canais) throws IOException {
+                byte[] cabecalho = cabecalho(largura, altura, canais);
+                long tamanho = cabecalho.length + (long) largura * altura * canais;
+                if (tamanho > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Imagem maior que 2 GB: " + largura + "×" + altura);
+                }
+                try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+                    mapa.put(0, cabecalho);
+                    return new Imagem(largura, altura, canais, largura * canais, cabecalho.length, mapa);
+                }
+            }
+
+            // Copia os pixels para um PGM/PPM novo (o passo do arquivo não tem preenchimento)
+            void gravar(Path caminho) throws IOException {
+                Imagem arquivo = criarArquivo(caminho, largura, altura, canais);
+                int bytesLinha = largura * canais;
+                for (int i = 0; i < altura; i++) {
+                    arquivo.dados.put(arquivo.indice(i, 0, 0), dados, indice(i, 0, 0), bytesLinha);
+                }
+                arquivo.sincronizar();
+            }
+
+            private static String lerToken(ByteBuffer cabecalho) throws IOException {
+                StringBuilder token = new StringBuilder();
+                while (cabecalho.hasRemaining()) {
+                    char c = (char) cabecalho.get(cabecalho.position());
+                    if (c == '#' && token.length() == 0) {
+                        while (cabecalho.hasRemaining() && cabecalho.get() != '\n') {
+                        }
+                    } else if (Character.isWhitespace(c)) {
+                        if (token.length() > 0) return token.toString();
+                        cabecalho.get();
+                    } else {
+                        token.append(c);
+                        cabecalho.get();
+                    }
+                }
+                throw new IOException("Cabeçalho PNM incompleto");
+            }
+        }
+
+        static class ResultadoImagem extends Resultado {
+            Imagem imagemSaida;
+
+            ResultadoImagem(Imagem imagemSaida, long tempo) {
+                super(tempo);
+                this.imagemSaida = imagemSaida;
+            }
+        }
+
+        // Blur 3x3 de uma amostra na borda (mesma regra de aplicarBlur)
+        private static int aplicarBlurBorda(Imagem imagem, int i, int j, int canal) {
+            int soma = 0;
+            int count = 0;
+            for (int ni = Math.max(i - 1, 0); ni <= Math.min(i + 1, imagem.altura - 1); ni++) {
+                for (int nj = Math.max(j - 1, 0); nj <= Math.min(j + 1, imagem.largura - 1); nj++) {
+                    soma += imagem.get(ni, nj, canal);
+                    count++;
+                }
+            }
+            return soma / count;
+        }
+
+        // Linhas [inicioLinha, fimLinha): no interior os vizinhos estão a ±canais e
+        // ±stride bytes, então todos os canais são percorridos num único laço linear
+        private static void filtrarLinhas(Imagem entrada, Imagem saida, int inicioLinha, int fimLinha) {
+            int largura = entrada.largura;
+            int altura = entrada.altura;
+            int canais = entrada.canais;
+            int stride = entrada.stride;
+            ByteBuffer in = entrada.dados;
+            ByteBuffer out = saida.dados;
+
+            for (int i = inicioLinha; i < fimLinha; i++) {
+                if (i == 0 || i == altura - 1 || largura < 3) {
+                    for (int j = 0; j < largura; j++) {
+                        for (int c = 0; c < canais; c++) {
+                            saida.set(i, j, c, aplicarBlurBorda(entrada, i, j, c));
+                        }
+                    }
+                    continue;
+                }
+                for (int c = 0; c < canais; c++) {
+                    saida.set(i, 0, c, aplicarBlurBorda(entrada, i, 0, c));
+                    saida.set(i, largura - 1, c, aplicarBlurBorda(entrada, i, largura - 1, c));
+                }
+                int base = entrada.indice(i, 0, 0);
+                int destino = saida.indice(i, 0, 0) - base;
+                for (int k = base + canais, fim = base + (largura - 1) * canais; k < fim; k++) {
+                    int soma = (in.get(k - stride - canais) & 0xFF) + (in.get(k - stride) & 0xFF)
+                            + (in.get(k - stride + canais) & 0xFF)
+                            + (in.get(k - canais) & 0xFF) + (in.get(k) & 0xFF) + (in.get(k + canais) & 0xFF)
+                            + (in.get(k + stride - canais) & 0xFF) + (in.get(k + stride) & 0xFF)
+                            + (in.get(k + stride + canais) & 0xFF);
+                    out.put(k + destino, (byte) (soma / 9));
+                }
+            }
+        }
+
+        private static void validarSaida(Imagem entrada, Imagem saida) {
+            if (!entrada.mesmoFormato(saida)) {
+                throw new IllegalArgumentException("Saída deve ter as dimensões e canais da entrada");
+            }
+        }
+
+        // Versão Sequencial - imagem compactada; a saída é reutilizada entre chamadas
+        public static ResultadoImagem aplicarFiltroSequencial(Imagem entrada, Imagem saida) {
+            validarSaida(entrada, saida);
+            long inicio = System.nanoTime();
+            filtrarLinhas(entrada, saida, 0, entrada.altura);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoImagem(saida, tempo);
+        }
+
+        // Versão Paralela - imagem compactada, Motor persistente e saída reutilizada
+        public static ResultadoImagem aplicarFiltroParalelo(Imagem entrada, Imagem saida, MotorParalelo motor) {
+            validarSaida(entrada, saida);
+            long inicio = System.nanoTime();
+            int paralelismo = AutoAjuste.paralelismo("exercicio7.filtro", motor);
+            motor.paraCada(0, entrada.altura, paralelismo,
+                    (bloco, inicioLinha, fimLinha) -> filtrarLinhas(entrada, saida, inicioLinha, fimLinha));
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoImagem(saida, tempo);
+        }
+
+        // Filtro fora do núcleo: a imagem fica no arquivo PGM/PPM e passa pela memória em
+        // faixas de linhas com 1 linha de halo de cada lado. Leitura, filtragem e escrita
+        // formam um pipeline; faixasEmVoo buffers circulam entre os três estágios, então a
+        // memória de pico depende do tamanho da faixa e não do tamanho da imagem.
+        static class FiltroEmFaixas {
+            static final int HALO = 1;
+
+            private static class Faixa {
+                final ByteBuffer entrada;
+                final ByteBuffer saida;
+                // Linha da imagem no topo do buffer (inclui o halo) e linhas carregadas
+                int primeiraLinha;
+                int numLinhas;
+                // Linhas do buffer filtradas e gravadas: [inicioSaida, fimSaida)
+                int inicioSaida;
+                int fimSaida;
+
+                Faixa(int capacidade) {
+                    entrada = ByteBuffer.allocateDirect(capacidade);
+                    saida = ByteBuffer.allocateDirect(capacidade);
+                }
+            }
+
+            // Marca de fim de fluxo entre os estágios
+            private static final Faixa FIM = new Faixa(0);
+
+            static class ResultadoFaixas extends Resultado {
+                int numFaixas;
+                long memoriaBuffers;
+
+                ResultadoFaixas(long tempo, int numFaixas, long memoriaBuffers) {
+                    super(tempo);
+                    this.numFaixas = numFaixas;
+                    this.memoriaBuffers = memoriaBuffers;
+                }
+            }
+
+            private final int linhasPorFaixa;
+            private final int faixasEmVoo;
+            private final MotorParalelo motor;
+
+            FiltroEmFaixas(int linhasPorFaixa, int faixasEmVoo, MotorParalelo motor) {
+                if (linhasPorFaixa < 1 || faixasEmVoo < 1) {
+                    throw new IllegalArgumentException("linhasPorFaixa e faixasEmVoo devem ser positivos");
+                }
+                this.linhasPorFaixa = linhasPorFaixa;
+                this.faixasEmVoo = faixasEmVoo;
+                this.motor = motor;
+            }
+
+            ResultadoFaixas aplicar(Path origem, Path destino) throws IOException, InterruptedException {
+                long inicio = System.nanoTime();
+                try (FileChannel entrada = FileChannel.open(origem, StandardOpenOption.READ);
+                     FileChannel saida = FileChannel.open(destino, StandardOpenOption.CREATE,
+                             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    int[] formato = Imagem.lerCabecalho(entrada, origem);
+                    int largura = formato[0];
+                    int altura = formato[1];
+                    int canais = formato[2];
+                    long deslocamentoEntrada = formato[3];
+                    int bytesLinha = largura * canais;
+
+                    byte[] cabecalho = Imagem.cabecalho(largura, altura, canais);
+                    saida.write(ByteBuffer.wrap(cabecalho), 0);
+                    long deslocamentoSaida = cabecalho.length;
+
+                    int linhas = Math.min(linhasPorFaixa, altura);
+                    int capacidade = Math.multiplyExact(linhas + 2 * HALO, bytesLinha);
+                    int numBuffers = Math.min(faixasEmVoo, (altura + linhas - 1) / linhas);
+                    int numFaixas = (altura + linhas - 1) / linhas;
+
+                    BlockingQueue<Faixa> livres = new ArrayBlockingQueue<>(numBuffers);
+                    BlockingQueue<Faixa> carregadas = new ArrayBlockingQueue<>(numBuffers + 1);
+                    BlockingQueue<Faixa> filtradas = new ArrayBlockingQueue<>(numBuffers + 1);
+                    for (int b = 0; b < numBuffers; b++) {
+                        livres.add(new Faixa(capacidade));
+                    }
+
+                    // Cada estágio guarda a primeira falha e sempre entrega FIM adiante. Só há
+                    // numBuffers faixas em circulação, então carregadas e filtradas sempre têm
+                    // espaço para o FIM (add não bloqueia nem é interrompível); o leitor, único
+                    // que espera por buffers livres, desiste quando outro estágio falha.
+                    AtomicReference<Throwable> falha = new AtomicReference<>();
+                    ExecutorService es = Executors.newFixedThreadPool(2);
+                    try {
+                        Future<?> leitor = es.submit(() -> {
+                            try {
+                                for (int f = 0; f < numFaixas; f++) {
+                                    Faixa faixa = aguardarLivre(livres, falha);
+                                    if (faixa == null) break;
+                                    int primeiraSaida = f * linhas;
+                                    int fimSaida = Math.min(primeiraSaida + linhas, altura);
+                                    faixa.primeiraLinha = Math.max(primeiraSaida - HALO, 0);
+                                    faixa.numLinhas = Math.min(fimSaida + HALO, altura) - faixa.primeiraLinha;
+                                    faixa.inicioSaida = primeiraSaida - faixa.primeiraLinha;
+                                    faixa.fimSaida = fimSaida - faixa.primeiraLinha;
+                                    lerCompleto(entrada, faixa.entrada.clear().limit(faixa.numLinhas * bytesLinha),
+                                            deslocamentoEntrada + (long) faixa.primeiraLinha * bytesLinha);
+                                    carregadas.add(faixa);
+                                }
+                            } catch (Throwable e) {
+                                falha.compareAndSet(null, e);
+                            } finally {
+                                carregadas.add(FIM);
+                            }
+                        });
+
+                        Future<?> escritor = es.submit(() -> {
+                            try {
+                                for (Faixa faixa = filtradas.take(); faixa != FIM; faixa = filtradas.take()) {
+                                    if (falha.get() != null) continue;
+                                    ByteBuffer trecho = faixa.saida.clear()
+                                            .position(faixa.inicioSaida * bytesLinha)
+                                            .limit(faixa.fimSaida * bytesLinha);
+                                    long posicao = deslocamentoSaida
+                                            + (long) (faixa.primeiraLinha + faixa.inicioSaida) * bytesLinha;
+                                    while (trecho.hasRemaining()) {
+                                        posicao += saida.write(trecho, posicao);
+                                    }
+                                    livres.add(faixa);
+                                }
+                            } catch (Throwable e) {
+                                falha.compareAndSet(null, e);
+                            }
+                        });
+
+                        // Estágio de filtragem nesta thread: as linhas da faixa são divididas no Motor.
+                        // O halo fica fora de [inicioSaida, fimSaida), então a regra de borda só
+                        // vale para a primeira e a última linha da imagem. Após uma falha, as
+                        // faixas restantes são descartadas até o FIM.
+                        try {
+                            for (Faixa faixa = carregadas.take(); faixa != FIM; faixa = carregadas.take()) {
+                                if (falha.get() != null) continue;
+                                Imagem de = new Imagem(largura, faixa.numLinhas, canais, bytesLinha, 0, faixa.entrada);
+                                Imagem para = new Imagem(largura, faixa.numLinhas, canais, bytesLinha, 0, faixa.saida.clear());
+                                motor.paraCada(faixa.inicioSaida, faixa.fimSaida, motor.getNumThreads(),
+                                        (bloco, ini, fim) -> filtrarLinhas(de, para, ini, fim));
+                                filtradas.add(faixa);
+                            }
+                        } catch (Throwable e) {
+                            falha.compareAndSet(null, e);
+                        } finally {
+                            filtradas.add(FIM);
+                        }
+
+                        leitor.get();
+                        escritor.get();
+                    } catch (ExecutionException e) {
+                        falha.compareAndSet(null, e.getCause());
+                    } finally {
+                        es.shutdown();
+                    }
+
+                    Throwable erro = falha.get();
+                    if (erro instanceof IOException) throw (IOException) erro;
+                    if (erro instanceof InterruptedException) throw (InterruptedException) erro;
+                    if (erro instanceof RuntimeException) throw (RuntimeException) erro;
+                    if (erro instanceof Error) throw (Error) erro;
+                    if (erro != null) throw new IllegalStateException(erro);
+
+                    long tempo = System.nanoTime() - inicio;
+                    return new ResultadoFaixas(tempo, numFaixas, 2L * capacidade * numBuffers);
+                }
+            }
+
+            // Espera um buffer livre; null se outro estágio falhou (não devolverá buffers)
+            private static Faixa aguardarLivre(BlockingQueue<Faixa> livres, AtomicReference<Throwable> falha)
+                    throws InterruptedException {
+                Faixa faixa;
+                while ((faixa = livres.poll(10, TimeUnit.MILLISECONDS)) == null) {
+                    if (falha.get() != null) return null;
+                }
+                return faixa;
+            }
+
+            private static void lerCompleto(FileChannel canal, ByteBuffer destino, long posicao) throws IOException {
+                while (destino.hasRemaining()) {
+                    int lidos = canal.read(destino, posicao);
+                    if (lidos < 0) throw new IOException("Fim de arquivo inesperado na posição " + posicao);
+                    posicao += lidos;
+                }
+            }
+        }
+
+        // Kernel de convolução k×k (k = 2 * raio + 1), pesos linha a linha.
+        // Kernels separáveis (posto 1) guardam os vetores vertical e horizontal e
+        // são aplicados em duas passagens 1D; kernels caixa usam somas deslizantes.
+        static class KernelConvolucao {
+            final int raio;
+            final int tamanho;
+            final double[] pesos;
+            final double[] vertical;
+            final double[] horizontal;
+            final boolean caixa;
+            // Pesos não-negativos: na borda divide pela soma dos pesos válidos (como
+            // aplicarBlur); caso contrário, vizinhos fora da imagem valem zero
+            final boolean normalizar;
+
+            KernelConvolucao(int tamanho, double[] pesos) {
+                if (tamanho % 2 == 0 || pesos.length != tamanho * tamanho) {
+                    throw new IllegalArgumentException("Kernel deve ser k×k com k ímpar: " + tamanho);
+                }
+                this.tamanho = tamanho;
+                this.raio = tamanho / 2;
+                this.pesos = pesos.clone();
+
+                boolean iguais = true;
+                boolean naoNegativos = true;
+                int pivo = 0;
+                for (int t = 0; t < pesos.length; t++) {
+                    iguais &= pesos[t] == pesos[0];
+                    naoNegativos &= pesos[t] >= 0;
+                    if (Math.abs(pesos[t]) > Math.abs(pesos[pivo])) pivo = t;
+                }
+                this.caixa = iguais && pesos[0] > 0;
+                this.normalizar = naoNegativos;
+
+                // Posto 1: K[i][j] = vertical[i] * horizontal[j]
+                double maximo = Math.abs(pesos[pivo]);
+                double[] v = new double[tamanho];
+                double[] h = new double[tamanho];
+                int p = pivo / tamanho;
+                int q = pivo % tamanho;
+                for (int t = 0; t < tamanho; t++) {
+                    v[t] = pesos[t * tamanho + q];
+                    h[t] = maximo == 0 ? 0 : pesos[p * tamanho + t] / pesos[pivo];
+                }
+                boolean separavel = maximo > 0;
+                for (int i = 0; i < tamanho && separavel; i++) {
+                    for (int j = 0; j < tamanho; j++) {
+                        if (Math.abs(v[i] * h[j] - pesos[i * tamanho + j]) > 1e-9 * maximo) {
+                            separavel = false;
+                            break;
+                        }
+                    }
+                }
+                this.vertical = separavel ? v : null;
+                this.horizontal = separavel ? h : null;
+            }
+
+            static KernelConvolucao caixa(int raio) {
+                int k = 2 * raio + 1;
+                double[] pesos = new double[k * k];
+                Arrays.fill(pesos, 1.0);
+                return new KernelConvolucao(k, pesos);
+            }
+
+            static KernelConvolucao gaussiano(int raio, double sigma) {
+                int k = 2 * raio + 1;
+                double[] g = new double[k];
+                for (int t = 0; t < k; t++) {
+                    double x = t - raio;
+                    g[t] = Math.exp(-x * x / (2 * sigma * sigma));
+                }
+                double[] pesos = new double[k * k];
+                for (int i = 0; i < k; i++) {
+                    for (int j = 0; j < k; j++) {
+                        pesos[i * k + j] = g[i] * g[j];
+                    }
+                }
+                return new KernelConvolucao(k, pesos);
+            }
+
+            static KernelConvolucao nitidez() {
+                return new KernelConvolucao(3, new double[] {0, -1, 0, -1, 5, -1, 0, -1, 0});
+            }
+
+            static KernelConvolucao sobelX() {
+                return new KernelConvolucao(3, new double[] {-1, 0, 1, -2, 0, 2, -1, 0, 1});
+            }
+
+            static KernelConvolucao sobelY() {
+                return new KernelConvolucao(3, new double[] {-1, -2, -1, 0, 0, 0, 1, 2, 1});
+            }
+        }
+
+        // Convolução das linhas [inicioLinha, fimLinha) de imagem, escrita em saida.
+        // Valores fora de [0, 255] saturam (exceto caixa, que é sempre uma média).
+        static void convoluir(int[][] imagem, KernelConvolucao kernel, int[][] saida,
+                int inicioLinha, int fimLinha) {
+            if (kernel.caixa) {
+                convoluirCaixa(imagem, kernel.raio, saida, inicioLinha, fimLinha);
+            } else if (kernel.vertical != null) {
+                convoluirSeparavel(imagem, kernel, saida, inicioLinha, fimLinha);
+            } else {
+                convoluir2D(imagem, kernel, saida, inicioLinha, fimLinha);
+            }
+        }
+
+        private static int saturar(double valor) {
+            return valor <= 0 ? 0 : valor >= 255 ? 255 : (int) valor;
+        }
+
+        // Quantidade de vizinhos dentro de [0, n) na janela [j - r, j + r]
+        private static int vizinhosValidos(int j, int r, int n) {
+            return Math.min(j + r, n - 1) - Math.max(j - r, 0) + 1;
+        }
+
+        // Soma deslizante horizontal de raio r: O(1) por pixel, escrita em somas
+        private static void somaDeslizante(int[] linha, int r, long[] somas) {
+            int largura = linha.length;
+            long soma = 0;
+            for (int t = 0; t <= Math.min(r, largura - 1); t++) {
+                soma += linha[t];
+            }
+
+            int j = 0;
+            int fimEsquerda = Math.min(r, largura - r - 1);
+            for (; j < fimEsquerda; j++) {
+                somas[j] = soma;
+                soma += linha[j + r + 1];
+            }
+            // Interior: janela inteira dentro da linha, sem desvios
+            for (; j < largura - r - 1; j++) {
+                somas[j] = soma;
+                soma += linha[j + r + 1] - linha[j - r];
+            }
+            for (; j < largura; j++) {
+                somas[j] = soma;
+                if (j + r + 1 < largura) soma += linha[j + r + 1];
+                if (j - r >= 0) soma -= linha[j - r];
+            }
+        }
+
+        // Caixa (2r+1)×(2r+1): somas deslizantes horizontais e depois verticais;
+        // a média usa divisão inteira pela quantidade de vizinhos válidos
+        private static void convoluirCaixa(int[][] imagem, int r, int[][] saida,
+                int inicioLinha, int fimLinha) {
+            int altura = imagem.length;
+            int largura = imagem[0].length;
+            int lado = 2 * r + 1;
+            int inicioInterior = Math.min(r, largura);
+            int fimInterior = Math.max(inicioInterior, largura - r);
+
+            // Anel com as somas horizontais das 2r+2 linhas da janela que desliza
+            // (a que entra e a que sai): memória O(r·largura) por faixa
+            int primeira = Math.max(0, inicioLinha - r);
+            long[][] anel = new long[Math.min(lado + 1, Math.min(altura, fimLinha + r) - primeira)][largura];
+
+            long[] acumulado = new long[largura];
+            for (int i = primeira; i <= Math.min(inicioLinha + r, altura - 1); i++) {
+                long[] somas = anel[(i - primeira) % anel.length];
+                somaDeslizante(imagem[i], r, somas);
+                for (int j = 0; j < largura; j++) {
+                    acumulado[j] += somas[j];
+                }
+            }
+
+            for (int i = inicioLinha; i < fimLinha; i++) {
+                int[] linhaSaida = saida[i];
+                long linhasValidas = vizinhosValidos(i, r, altura);
+                // Só as bordas dividem pela contagem exata; no miolo a área é constante
+                long area = linhasValidas * lado;
+                for (int j = 0; j < inicioInterior; j++) {
+                    linhaSaida[j] = (int) (acumulado[j] / (linhasValidas * vizinhosValidos(j, r, largura)));
+                }
+                for (int j = inicioInterior; j < fimInterior; j++) {
+                    linhaSaida[j] = (int) (acumulado[j] / area);
+                }
+                for (int j = fimInterior; j < largura; j++) {
+                    linhaSaida[j] = (int) (acumulado[j] / (linhasValidas * vizinhosValidos(j, r, largura)));
+                }
+                if (i + 1 == fimLinha) break;
+
+                // Desliza a janela vertical uma linha para baixo; a linha que entra
+                // ocupa a posição da que saiu no passo anterior
+                if (i + r + 1 < altura) {
+                    long[] entra = anel[(i + r + 1 - primeira) % anel.length];
+                    somaDeslizante(imagem[i + r + 1], r, entra);
+                    for (int j = 0; j < largura; j++) acumulado[j] += entra[j];
+                }
+                if (i - r >= 0) {
+                    long[] sai = anel[(i - r - primeira) % anel.length];
+                    for (int j = 0; j < largura; j++) acumulado[j] -= sai[j];
+                }
+            }
+        }
+
+        // Convolução 1D horizontal; o interior não testa limites
+        private static void convolucao1D(int[] linha, double[] pesos, int r, double[] destino) {
+            int largura = linha.length;
+            int k = pesos.length;
+            int inicioInterior = Math.min(r, largura);
+            int fimInterior = Math.max(inicioInterior, largura - r);
+
+            for (int j = inicioInterior; j < fimInterior; j++) {
+                double soma = 0;
+                int base = j - r;
+                for (int t = 0; t < k; t++) {
+                    soma += pesos[t] * linha[base + t];
+                }
+                destino[j] = soma;
+            }
+            for (int j = 0; j < largura; j++) {
+                if (j == inicioInterior) j = fimInterior;
+                if (j >= largura) break;
+                double soma = 0;
+                for (int t = Math.max(0, r - j); t < Math.min(k, largura - j + r); t++) {
+                    soma += pesos[t] * linha[j + t - r];
+                }
+                destino[j] = soma;
+            }
+        }
+
+        // Kernel separável: passagem horizontal (com halo de r linhas) e vertical
+        private static void convoluirSeparavel(int[][] imagem, KernelConvolucao kernel, int[][] saida,
+                int inicioLinha, int fimLinha) {
+            int altura = imagem.length;
+            int largura = imagem[0].length;
+            int r = kernel.raio;
+            double[] vertical = kernel.vertical;
+            double[] horizontal = kernel.horizontal;
+            int primeira = Math.max(0, inicioLinha - r);
+            int ultima = Math.min(altura, fimLinha + r);
+
+            double[][] passagemH = new double[ultima - primeira][largura];
+            for (int i = primeira; i < ultima; i++) {
+                convolucao1D(imagem[i], horizontal, r, passagemH[i - primeira]);
+            }
+
+            // Soma dos pesos horizontais válidos por coluna (normalização na borda)
+            double[] somaColunas = new double[largura];
+            for (int j = 0; j < largura; j++) {
+                for (int t = Math.max(0, r - j); t < Math.min(kernel.tamanho, largura - j + r); t++) {
+                    somaColunas[j] += horizontal[t];
+                }
+            }
+
+            double[] acumulado = new double[largura];
+            for (int i = inicioLinha; i < fimLinha; i++) {
+                Arrays.fill(acumulado, 0);
+                double somaLinhas = 0;
+                for (int t = Math.max(0, r - i); t < Math.min(kernel.tamanho, altura - i + r); t++) {
+                    double peso = vertical[t];
+                    double[] linha = passagemH[i + t - r - primeira];
+                    somaLinhas += peso;
+                    for (int j = 0; j < largura; j++) {
+                        acumulado[j] += peso * linha[j];
+                    }
+                }
+
+                int[] linhaSaida = saida[i];
+                if (kernel.normalizar) {
+                    for (int j = 0; j < largura; j++) {
+                        linhaSaida[j] = saturar(acumulado[j] / (somaLinhas * somaColunas[j]));
+                    }
+                } else {
+                    for (int j = 0; j < largura; j++) {
+                        linhaSaida[j] = saturar(acumulado[j]);
+                    }
+                }
+            }
+        }
+
+        // Kernel não separável: O(k²) por pixel; interior sem testes de limite
+        private static void convoluir2D(int[][] imagem, KernelConvolucao kernel, int[][] saida,
+                int inicioLinha, int fimLinha) {
+            int altura = imagem.length;
+            int largura = imagem[0].length;
+            int r = kernel.raio;
+            int k = kernel.tamanho;
+            double[] pesos = kernel.pesos;
+            double escala = 1;
+            if (kernel.normalizar) {
+                double somaPesos = 0;
+                for (double peso : pesos) somaPesos += peso;
+                escala = 1 / somaPesos;
+            }
+
+            for (int i = inicioLinha; i < fimLinha; i++) {
+                boolean linhaInterior = i >= r && i < altura - r;
+                int inicioInterior = linhaInterior ? Math.min(r, largura) : largura;
+                int fimInterior = linhaInterior ? Math.max(inicioInterior, largura - r) : largura;
+
+                for (int j = inicioInterior; j < fimInterior; j++) {
+                    double soma = 0;
+                    for (int a = 0; a < k; a++) {
+                        int[] linha = imagem[i + a - r];
+                        int base = a * k;
+                        for (int b = 0; b < k; b++) {
+                            soma += pesos[base + b] * linha[j + b - r];
+                        }
+                    }
+                    saida[i][j] = saturar(soma * escala);
+                }
+                for (int j = 0; j < largura; j++) {
+                    if (j == inicioInterior) j = fimInterior;
+                    if (j >= largura) break;
+                    saida[i][j] = pixelBorda(imagem, kernel, i, j);
+                }
+            }
+        }
+
+        private static int pixelBorda(int[][] imagem, KernelConvolucao kernel, int i, int j) {
+            int r = kernel.raio;
+            double soma = 0;
+            double somaPesos = 0;
+            for (int a = 0; a < kernel.tamanho; a++) {
+                int ni = i + a - r;
+                if (ni < 0 || ni >= imagem.length) continue;
+                for (int b = 0; b < kernel.tamanho; b++) {
+                    int nj = j + b - r;
+                    if (nj < 0 || nj >= imagem[0].length) continue;
+                    double peso = kernel.pesos[a * kernel.tamanho + b];
+                    soma += peso * imagem[ni][nj];
+                    somaPesos += peso;
+                }
+            }
+            return saturar(kernel.normalizar ? soma / somaPesos : soma);
+        }
+
+        // Versão Sequencial - Convolução genérica
+        public static ResultadoFiltro aplicarConvolucaoSequencial(int[][] imagem, KernelConvolucao kernel) {
+            long inicio = System.nanoTime();
+            int[][] imagemSaida = new int[imagem.length][imagem[0].length];
+            convoluir(imagem, kernel, imagemSaida, 0, imagem.length);
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoFiltro(imagemSaida, tempo);
+        }
+
+        // Versão Paralela - Convolução genérica: faixas de linhas no motor, cada
+        // faixa recalcula seu próprio halo de r linhas
+        public static ResultadoFiltro aplicarConvolucaoParalelo(int[][] imagem, KernelConvolucao kernel,
+                MotorParalelo motor) {
+            long inicio = System.nanoTime();
+            int[][] imagemSaida = new int[imagem.length][imagem[0].length];
+            motor.paraCada(0, imagem.length, motor.getNumThreads(), (bloco, inicioLinha, fimLinha) ->
+                    convoluir(imagem, kernel, imagemSaida, inicioLinha, fimLinha));
+            long tempo = System.nanoTime() - inicio;
+            return new ResultadoFiltro(imagemSaida, tempo);
+        }
+
+        // Cadeia de filtros (ex.: blur → nitidez → limiar). Na versão fundida cada tile 2D
+        // passa por todos os estágios em buffers locais do tamanho do L2: a entrada do tile
+        // é expandida pela soma dos raios e cada estágio recalcula o halo que o próximo
+        // precisa, então os resultados intermediários nunca vão para a imagem inteira.
+        static class PipelineFiltros {
+
+            // Janela retangular da imagem em um vetor plano; (y0, x0) é o canto na imagem
+            static final class Regiao {
+                int[] dados;
+                int y0;
+                int x0;
+                int altura;
+                int largura;
+
+                Regiao(int capacidade) {
+                    dados = new int[capacidade];
+                }
+
+                void definir(int y0, int x0, int altura, int largura) {
+                    this.y0 = y0;
+                    this.x0 = x0;
+                    this.altura = altura;
+                    this.largura = largura;
+                }
+
+                int indice(int y, int x) {
+                    return (y - y0) * largura + (x - x0);
+                }
+            }
+
+            interface Estagio {
+                int raio();
+
+                // Calcula as linhas [linhaInicio, linhaFim) (coordenadas da imagem) de destino;
+                // origem cobre destino expandido pelo raio, recortado aos limites da imagem
+                void aplicar(Regiao origem, Regiao destino, int linhaInicio, int linhaFim,
+                             int alturaImagem, int larguraImagem);
+            }
+
+            // Convolução com a mesma regra de borda de pixelBorda; kernels caixa usam soma
+            // inteira e divisão truncada, como aplicarBlur
+            static class EstagioConvolucao implements Estagio {
+                private final KernelConvolucao kernel;
+                private final double escala;
+
+                EstagioConvolucao(KernelConvolucao kernel) {
+                    this.kernel = kernel;
+                    double somaPesos = 0;
+                    for (double peso : kernel.pesos) somaPesos += peso;
+                    this.escala = kernel.normalizar ? 1 / somaPesos : 1;
+                }
+
+                public int raio() {
+                    return kernel.raio;
+                }
+
+                public void aplicar(Regiao origem, Regiao destino, int linhaInicio, int linhaFim,
+                                    int alturaImagem, int larguraImagem) {
+                    int r = kernel.raio;
+                    int k = kernel.tamanho;
+                    double[] pesos = kernel.pesos;
+                    int[] in = origem.dados;
+                    int[] out = destino.dados;
+                    int xInicio = destino.x0;
+                    int xFim = destino.x0 + destino.largura;
+
+                    for (int y = linhaInicio; y < linhaFim; y++) {
+                        boolean linhaInterior = y >= r && y < alturaImagem - r;
+                        int inicioInterior = linhaInterior ? Math.min(Math.max(xInicio, r), xFim) : xFim;
+                        int fimInterior = linhaInterior
+                                ? Math.max(inicioInterior, Math.min(xFim, larguraImagem - r)) : xFim;
+
+                        // Canto superior esquerdo da janela do primeiro pixel interior
+                        int canto = origem.indice(y - r, inicioInterior - r);
+                        int passo = origem.largura;
+                        int alvo = destino.indice(y, inicioInterior);
+                        if (kernel.caixa) {
+                            int area = k * k;
+                            for (int x = inicioInterior; x < fimInterior; x++, canto++, alvo++) {
+                                int soma = 0;
+                                for (int a = 0, base = canto; a < k; a++, base += passo) {
+                                    for (int b = 0; b < k; b++) {
+                                        soma += in[base + b];
+                                    }
+                                }
+                                out[alvo] = soma / area;
+                            }
+                        } else {
+                            for (int x = inicioInterior; x < fimInterior; x++, canto++, alvo++) {
+                                double soma = 0;
+                                for (int a = 0, base = canto; a < k; a++, base += passo) {
+                                    for (int b = 0; b < k; b++) {
+                                        soma += pesos[a * k + b] * in[base + b];
+                                    }
+                                }
+                                out[alvo] = saturar(soma * escala);
+                            }
+                        }
+                        for (int x = xInicio; x < xFim; x++) {
+                            if (x == inicioInterior) x = fimInterior;
+                            if (x >= xFim) break;
+                            out[destino.indice(y, x)] = pixelBorda(origem, y, x, alturaImagem, larguraImagem);
+                        }
                     }
                 }
-            }
-            
-            return soma / count;
-        }
-        
-        // Versão Sequencial
-        public static ResultadoFiltro aplicarFiltroSequencial(int[][] imagem) {
-            long inicio = System.nanoTime();
-            int altura = imagem.length;
-            int largura = imagem[0].length;
-            int[][] imagemSaida = new int[altura][largura];
-            
-            for (int i = 0; i < altura; i++) {
-                for (int j = 0; j < largura; j++) {
-                    imagemSaida[i][j] = aplicarBlur(imagem, i, j);
+
+                private int pixelBorda(Regiao origem, int y, int x, int alturaImagem, int larguraImagem) {
+                    int r = kernel.raio;
+                    double soma = 0;
+                    double somaPesos = 0;
+                    int somaInteira = 0;
+                    int count = 0;
+                    for (int a = 0; a < kernel.tamanho; a++) {
+                        int ny = y + a - r;
+                        if (ny < 0 || ny >= alturaImagem) continue;
+                        for (int b = 0; b < kernel.tamanho; b++) {
+                            int nx = x + b - r;
+                            if (nx < 0 || nx >= larguraImagem) continue;
+                            int valor = origem.dados[origem.indice(ny, nx)];
+                            double peso = kernel.pesos[a * kernel.tamanho + b];
+                            soma += peso * valor;
+                            somaPesos += peso;
+                            somaInteira += valor;
+                            count++;
+                        }
+                    }
+                    if (kernel.caixa) return somaInteira / count;
+                    return saturar(kernel.normalizar ? soma / somaPesos : soma);
                 }
             }
-            
-            long tempo = System.nanoTime() - inicio;
-            return new ResultadoFiltro(imagemSaida, tempo);
-        }
-        
-        // Versão Paralela
-        public static ResultadoFiltro aplicarFiltroParalelo(int[][] imagem, int numThreads) 
-                throws InterruptedException {
-            long inicio = System.nanoTime();
-            int altura = imagem.length;
-            int largura = imagem[0].length;
-            int[][] imagemSaida = new int[altura][largura];
-            
-            int linhasPorThread = altura / numThreads;
-            Thread[] threads = new Thread[numThreads];
-            
-            for (int i = 0; i < numThreads; i++) {
-                final int inicioLinha = i * linhasPorThread;
-                final int fimLinha = (i == numThreads - 1) ? altura : (i + 1) * linhasPorThread;
-                
-                threads[i] = new Thread(() -> {
-                    for (int linha = inicioLinha; linha < fimLinha; linha++) {
-                        for (int col = 0; col < largura; col++) {
-                            imagemSaida[linha][col] = aplicarBlur(imagem, linha, col);
+
+            static class EstagioLimiar implements Estagio {
+                private final int limite;
+
+                EstagioLimiar(int limite) {
+                    this.limite = limite;
+                }
+
+                public int raio() {
+                    return 0;
+                }
+
+                public void aplicar(Regiao origem, Regiao destino, int linhaInicio, int linhaFim,
+                                    int alturaImagem, int larguraImagem) {
+                    for (int y = linhaInicio; y < linhaFim; y++) {
+                        int de = origem.indice(y, destino.x0);
+                        int para = destino.indice(y, destino.x0);
+                        for (int x = 0; x < destino.largura; x++) {
+                            destino.dados[para + x] = origem.dados[de + x] >= limite ? 255 : 0;
                         }
                     }
+                }
+            }
+
+            private final Estagio[] estagios;
+            private final int raioTotal;
+            // Par de buffers de cada worker, reaproveitado entre tiles e chamadas
+            private final ThreadLocal<Regiao[]> buffers = new ThreadLocal<>();
+
+            PipelineFiltros(Estagio... estagios) {
+                if (estagios.length == 0) {
+                    throw new IllegalArgumentException("Pipeline sem estágios");
+                }
+                this.estagios = estagios.clone();
+                int soma = 0;
+                for (Estagio estagio : estagios) soma += estagio.raio();
+                this.raioTotal = soma;
+            }
+
+            int getRaioTotal() {
+                return raioTotal;
+            }
+
+            // Lado do tile para que os dois buffers de int (tile + halo) caibam em ~256 KB (L2),
+            // a menos que o perfil de auto-ajuste tenha medido outro
+            int tileParaL2() {
+                int lado = (int) Math.sqrt((256 * 1024) / (2.0 * Integer.BYTES));
+                return AutoAjuste.inteiro("exercicio7.pipeline.tile", Math.max(16, (lado - 2 * raioTotal) / 16 * 16));
+            }
+
+            // Versão não fundida: uma passagem pela imagem inteira por estágio
+            ResultadoFiltro aplicarSeparado(int[][] imagem, MotorParalelo motor) {
+                long inicio = System.nanoTime();
+                int altura = imagem.length;
+                int largura = imagem[0].length;
+
+                Regiao atual = new Regiao(altura * largura);
+                atual.definir(0, 0, altura, largura);
+                for (int i = 0; i < altura; i++) {
+                    System.arraycopy(imagem[i], 0, atual.dados, i * largura, largura);
+                }
+                for (Estagio estagio : estagios) {
+                    Regiao origem = atual;
+                    Regiao destino = new Regiao(altura * largura);
+                    destino.definir(0, 0, altura, largura);
+                    motor.paraCada(0, altura, motor.getNumThreads(), (bloco, inicioLinha, fimLinha) ->
+                            estagio.aplicar(origem, destino, inicioLinha, fimLinha, altura, largura));
+                    atual = destino;
+                }
+
+                int[][] imagemSaida = new int[altura][largura];
+                for (int i = 0; i < altura; i++) {
+                    System.arraycopy(atual.dados, i * largura, imagemSaida[i], 0, largura);
+                }
+                long tempo = System.nanoTime() - inicio;
+                return new ResultadoFiltro(imagemSaida, tempo);
+            }
+
+            // Versão fundida: tiles distribuídos pelo EscalonadorIntervalos (roubo de trabalho)
+            ResultadoFiltro aplicarFundido(int[][] imagem, int tamanhoTile, MotorParalelo motor) {
+                long inicio = System.nanoTime();
+                int altura = imagem.length;
+                int largura = imagem[0].length;
+                int[][] imagemSaida = new int[altura][largura];
+                int tilesY = (altura + tamanhoTile - 1) / tamanhoTile;
+                int tilesX = (largura + tamanhoTile - 1) / tamanhoTile;
+                int capacidade = (tamanhoTile + 2 * raioTotal) * (tamanhoTile + 2 * raioTotal);
+
+                new EscalonadorIntervalos(motor, 1).executar(0, tilesY * tilesX, (inicioTile, fimTile) -> {
+                    Regiao[] par = buffers.get();
+                    if (par == null || par[0].dados.length < capacidade) {
+                        par = new Regiao[] {new Regiao(capacidade), new Regiao(capacidade)};
+                        buffers.set(par);
+                    }
+                    for (int t = inicioTile; t < fimTile; t++) {
+                        int y0 = (t / tilesX) * tamanhoTile;
+                        int x0 = (t % tilesX) * tamanhoTile;
+                        processarTile(imagem, imagemSaida, y0, x0,
+                                Math.min(y0 + tamanhoTile, altura), Math.min(x0 + tamanhoTile, largura), par);
+                    }
+                    return 0;
                 });
-                threads[i].start();
+
+                long tempo = System.nanoTime() - inicio;
+                return new ResultadoFiltro(imagemSaida, tempo);
             }
-            
-            for (Thread thread : threads) {
-                thread.join();
+
+            private void processarTile(int[][] imagem, int[][] saida, int y0, int x0, int y1, int x1, Regiao[] par) {
+                int altura = imagem.length;
+                int largura = imagem[0].length;
+
+                // Entrada: tile expandido pelo raio total
+                Regiao atual = par[0];
+                definirExpandida(atual, y0, x0, y1, x1, raioTotal, altura, largura);
+                for (int y = atual.y0; y < atual.y0 + atual.altura; y++) {
+                    System.arraycopy(imagem[y], atual.x0, atual.dados, atual.indice(y, atual.x0), atual.largura);
+                }
+
+                // Cada estágio produz o tile expandido pelo raio dos estágios seguintes
+                int restante = raioTotal;
+                for (Estagio estagio : estagios) {
+                    restante -= estagio.raio();
+                    Regiao destino = atual == par[0] ? par[1] : par[0];
+                    definirExpandida(destino, y0, x0, y1, x1, restante, altura, largura);
+                    estagio.aplicar(atual, destino, destino.y0, destino.y0 + destino.altura, altura, largura);
+                    atual = destino;
+                }
+
+                for (int y = y0; y < y1; y++) {
+                    System.arraycopy(atual.dados, atual.indice(y, x0), saida[y], x0, x1 - x0);
+                }
+            }
+
+            private static void definirExpandida(Regiao regiao, int y0, int x0, int y1, int x1, int margem,
+                                                 int altura, int largura) {
+                int topo = Math.max(y0 - margem, 0);
+                int esquerda = Math.max(x0 - margem, 0);
+                regiao.definir(topo, esquerda, Math.min(y1 + margem, altura) - topo,
+                        Math.min(x1 + margem, largura) - esquerda);
             }
-            
-            long tempo = System.nanoTime() - inicio;
-            return new ResultadoFiltro(imagemSaida, tempo);
         }
-        
-        public static void executar() throws InterruptedException {
+
+        public static void executar() throws InterruptedException, IOException {
             System.out.println("=== EXERCÍCIO 7: FILTRO EM IMAGEM (BLUR) ===\n");
             
             int[] tamanhos = {1000, 2000, 3000};
-            int[] numThreadsList = {2, 4, 8};
+            int[] numThreadsList = AutoAjuste.listaThreads("exercicio7.filtro");
             
             for (int tamanho : tamanhos) {
                 System.out.println("Tamanho da imagem: " + tamanho + "×" + tamanho);
                 
-                // Gerar imagem aleatória
-                int[][] imagem = new int[tamanho][tamanho];
-                Random random = new Random(42);
-                for (int i = 0; i < tamanho; i++) {
-                    for (int j = 0; j < tamanho; j++) {
-                        imagem[i][j] = random.nextInt(256);
-                    }
-                }
+                // Gerar imagem aleatória (em paralelo, ou do cache de dados)
+                int[][] imagem = Dados.imagem(tamanho, tamanho, 42);
                 
                 // Versão sequencial
                 ResultadoFiltro resSeq = aplicarFiltroSequencial(imagem);
@@ -517,16 +4843,680 @@ public class ExerciciosParalelos {
                     System.out.printf("Paralelo (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
                             "Eficiência=%.2f%%\n",
                             numThreads, resPar.tempo / 1_000_000.0, speedup, eficiencia * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoFiltro resMotor = aplicarFiltroParalelo(imagem,
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupMotor = (double) resSeq.tempo / resMotor.tempo;
+                    double eficienciaMotor = speedupMotor / numThreads;
+
+                    System.out.printf("Paralelo Motor (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                            "Eficiência=%.2f%%\n",
+                            numThreads, resMotor.tempo / 1_000_000.0, speedupMotor, eficienciaMotor * 100);
+                    Instrumentacao.imprimirUltima();
+
+                    ResultadoFiltro resConv = aplicarConvolucaoParalelo(imagem, KernelConvolucao.caixa(1),
+                            MotorParalelo.compartilhado(numThreads));
+                    double speedupConv = (double) resSeq.tempo / resConv.tempo;
+
+                    System.out.printf("Convolução Caixa (%d threads): Tempo=%.3f ms, Speedup=%.2fx, " +
+                            "Eficiência=%.2f%%\n",
+                            numThreads, resConv.tempo / 1_000_000.0, speedupConv, speedupConv / numThreads * 100);
                 }
                 System.out.println();
             }
+
+            executarKernels();
+            System.out.println();
+            executarImagemCompactada();
+            System.out.println();
+            executarFaixas();
+            System.out.println();
+            executarPipeline();
+        }
+
+        // Tempo sequencial de cada kernel: caixa mantém custo constante com o raio
+        static void executarKernels() throws IOException {
+            int tamanho = 2000;
+            int[][] imagem = Dados.imagem(tamanho, tamanho, 42);
+
+            String[] nomes = {"Caixa 3×3", "Caixa 15×15", "Caixa 31×31", "Gaussiano 5×5",
+                    "Nitidez 3×3", "Sobel X 3×3"};
+            KernelConvolucao[] kernels = {KernelConvolucao.caixa(1), KernelConvolucao.caixa(7),
+                    KernelConvolucao.caixa(15), KernelConvolucao.gaussiano(2, 1.0),
+                    KernelConvolucao.nitidez(), KernelConvolucao.sobelX()};
+            for (int k = 0; k < kernels.length; k++) {
+                ResultadoFiltro res = aplicarConvolucaoSequencial(imagem, kernels[k]);
+                System.out.printf("Kernel %s (%s): Tempo=%.3f ms\n", nomes[k],
+                        kernels[k].caixa ? "somas deslizantes" : kernels[k].vertical != null ? "separável" : "2D",
+                        res.tempo / 1_000_000.0);
+            }
+        }
+
+        // Imagem compactada com saída reutilizada e ida e volta por PGM/PPM mapeado
+        static void executarImagemCompactada() throws IOException {
+            int tamanho = 2000;
+            int repeticoes = 5;
+            MotorParalelo motor = MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+
+            for (int canais : new int[] {1, 3, 4}) {
+                // Canais intercalados: cada linha de amostras é uma linha de largura × canais
+                int[][] amostras = Dados.imagem(tamanho, tamanho * canais, 42);
+                Imagem entrada = Imagem.criar(tamanho, tamanho, canais);
+                for (int i = 0; i < tamanho; i++) {
+                    for (int k = 0; k < tamanho * canais; k++) {
+                        entrada.set(i, k / canais, k % canais, amostras[i][k]);
+                    }
+                }
+                Imagem saida = Imagem.criar(tamanho, tamanho, canais);
+
+                long tempoSeq = aplicarFiltroSequencial(entrada, saida).tempo;
+                long melhor = Long.MAX_VALUE;
+                for (int r = 0; r < repeticoes; r++) {
+                    melhor = Math.min(melhor, aplicarFiltroParalelo(entrada, saida, motor).tempo);
+                }
+                System.out.printf("Imagem compactada %d canal(is), stride=%d: Sequencial=%.3f ms, " +
+                        "Paralelo (%d threads, melhor de %d)=%.3f ms\n", canais, entrada.stride,
+                        tempoSeq / 1_000_000.0, motor.getNumThreads(), repeticoes, melhor / 1_000_000.0);
+            }
+
+            // Entrada e saída mapeadas: o filtro lê e escreve direto nas páginas dos arquivos
+            Path diretorio = Files.createTempDirectory("imagem");
+            Path arquivoEntrada = diretorio.resolve("entrada.pgm");
+            Path arquivoSaida = diretorio.resolve("saida.pgm");
+            try {
+                int[][] pixels = Dados.imagem(tamanho, tamanho, 43);
+                Imagem.deMatriz(pixels).gravar(arquivoEntrada);
+
+                Imagem entrada = Imagem.mapear(arquivoEntrada, false);
+                Imagem saida = Imagem.criarArquivo(arquivoSaida, entrada.largura, entrada.altura, entrada.canais);
+                ResultadoImagem res = aplicarFiltroParalelo(entrada, saida, motor);
+                saida.sincronizar();
+
+                int[][] esperado = aplicarFiltroSequencial(pixels).imagemSaida;
+                boolean iguais = Arrays.deepEquals(esperado, Imagem.mapear(arquivoSaida, false).paraMatriz(0));
+                System.out.printf("PGM mapeado %d×%d: Tempo=%.3f ms, igual ao filtro original: %s\n",
+                        tamanho, tamanho, res.tempo / 1_000_000.0, iguais ? "sim" : "não");
+            } finally {
+                Files.deleteIfExists(arquivoEntrada);
+                Files.deleteIfExists(arquivoSaida);
+                Files.deleteIfExists(diretorio);
+            }
+        }
+
+        // Cadeias de 2 a 5 estágios: uma passagem por estágio x tiles fundidos
+        static void executarPipeline() throws IOException {
+            int tamanho = 2000;
+            int[][] imagem = Dados.imagem(tamanho, tamanho, 42);
+            MotorParalelo motor = MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+
+            PipelineFiltros.Estagio blur = new PipelineFiltros.EstagioConvolucao(KernelConvolucao.caixa(1));
+            PipelineFiltros.Estagio gaussiano = new PipelineFiltros.EstagioConvolucao(KernelConvolucao.gaussiano(2, 1.0));
+            PipelineFiltros.Estagio nitidez = new PipelineFiltros.EstagioConvolucao(KernelConvolucao.nitidez());
+            PipelineFiltros.Estagio limiar = new PipelineFiltros.EstagioLimiar(128);
+            String[] nomes = {"blur → nitidez", "blur → nitidez → limiar", "blur → blur → nitidez → limiar",
+                    "gaussiano → blur → blur → nitidez → limiar"};
+            PipelineFiltros[] pipelines = {
+                    new PipelineFiltros(blur, nitidez),
+                    new PipelineFiltros(blur, nitidez, limiar),
+                    new PipelineFiltros(blur, blur, nitidez, limiar),
+                    new PipelineFiltros(gaussiano, blur, blur, nitidez, limiar)};
+
+            double megapixels = (double) tamanho * tamanho / 1e6;
+            for (int p = 0; p < pipelines.length; p++) {
+                PipelineFiltros pipeline = pipelines[p];
+                int tile = pipeline.tileParaL2();
+                // Melhor de 3 execuções de cada versão
+                ResultadoFiltro separado = pipeline.aplicarSeparado(imagem, motor);
+                ResultadoFiltro fundido = pipeline.aplicarFundido(imagem, tile, motor);
+                long tempoSeparado = separado.tempo;
+                long tempoFundido = fundido.tempo;
+                for (int r = 1; r < 3; r++) {
+                    tempoSeparado = Math.min(tempoSeparado, pipeline.aplicarSeparado(imagem, motor).tempo);
+                    tempoFundido = Math.min(tempoFundido, pipeline.aplicarFundido(imagem, tile, motor).tempo);
+                }
+                boolean iguais = Arrays.deepEquals(separado.imagemSaida, fundido.imagemSaida);
+                System.out.printf("Pipeline %s: Separado=%.1f Mpx/s, Fundido (tile %d)=%.1f Mpx/s, " +
+                        "Ganho=%.2fx, igual: %s\n", nomes[p], megapixels / (tempoSeparado / 1e9), tile,
+                        megapixels / (tempoFundido / 1e9), (double) tempoSeparado / tempoFundido,
+                        iguais ? "sim" : "não");
+            }
+        }
+
+        // Filtro em faixas sobre um PPM em disco; a memória usada não cresce com a imagem
+        static void executarFaixas() throws IOException, InterruptedException {
+            int largura = 4000;
+            int altura = 4000;
+            int canais = 3;
+            MotorParalelo motor = MotorParalelo.compartilhado(Runtime.getRuntime().availableProcessors());
+
+            Path diretorio = Files.createTempDirectory("faixas");
+            Path arquivoEntrada = diretorio.resolve("entrada.ppm");
+            Path arquivoSaida = diretorio.resolve("saida.ppm");
+            try {
+                Imagem entrada = Imagem.criarArquivo(arquivoEntrada, largura, altura, canais);
+                int[][] amostras = Dados.imagem(altura, largura * canais, 42);
+                for (int i = 0; i < altura; i++) {
+                    int base = entrada.indice(i, 0, 0);
+                    for (int k = 0; k < largura * canais; k++) {
+                        entrada.dados.put(base + k, (byte) amostras[i][k]);
+                    }
+                }
+                entrada.sincronizar();
+
+                Imagem esperado = Imagem.criar(largura, altura, canais);
+                long tempoMemoria = aplicarFiltroParalelo(entrada, esperado, motor).tempo;
+                System.out.printf("Imagem inteira mapeada %d×%d RGB: Tempo=%.3f ms\n",
+                        largura, altura, tempoMemoria / 1_000_000.0);
+
+                for (int linhasPorFaixa : new int[] {64, 256, 1024}) {
+                    FiltroEmFaixas filtro = new FiltroEmFaixas(linhasPorFaixa, 3, motor);
+                    FiltroEmFaixas.ResultadoFaixas res = filtro.aplicar(arquivoEntrada, arquivoSaida);
+                    boolean iguais = esperado.mesmosPixels(Imagem.mapear(arquivoSaida, false));
+                    System.out.printf("Faixas de %d linhas (%d faixas, 3 em voo): Tempo=%.3f ms, " +
+                            "Buffers=%.1f MB, igual: %s\n", linhasPorFaixa, res.numFaixas,
+                            res.tempo / 1_000_000.0, res.memoriaBuffers / (1024.0 * 1024.0), iguais ? "sim" : "não");
+                }
+            } finally {
+                Files.deleteIfExists(arquivoEntrada);
+                Files.deleteIfExists(arquivoSaida);
+                Files.deleteIfExists(diretorio);
+            }
         }
     }
-    
+
+    // Serviço assíncrono de kernels para muitos chamadores concorrentes.
+    // submeter() devolve um CompletableFuture; um despachante só retira pedidos
+    // da fila quando há vaga de execução, então sob carga a fila acumula e os
+    // pedidos compatíveis (mesmo kernel e mesma chaveLote) saem num único lote.
+    // - Admissão: no máximo capacidadeFila pedidos pendentes; submeter espera
+    //   até esperaAdmissao por vaga (backpressure) e então rejeita o pedido
+    // - CPU: no máximo maxEmVoo lotes executando ao mesmo tempo, todos no motor
+    static final class ServicoKernels implements AutoCloseable {
+
+        private static final class Pedido<E, R extends Resultado> {
+            final Kernel<E, R> kernel;
+            final E entrada;
+            final Object chave;
+            final CompletableFuture<R> futuro = new CompletableFuture<>();
+
+            Pedido(Kernel<E, R> kernel, E entrada) {
+                this.kernel = kernel;
+                this.entrada = entrada;
+                this.chave = kernel.chaveLote(entrada);
+            }
+
+            boolean compativel(Pedido<?, ?> outro) {
+                return chave != null && kernel == outro.kernel && chave.equals(outro.chave);
+            }
+        }
+
+        private final MotorParalelo motor;
+        private final int tamanhoMaximoLote;
+        private final long esperaAdmissao;
+        private final Semaphore admissao;
+        private final Semaphore execucao;
+        private final LinkedBlockingQueue<Pedido<?, ?>> fila = new LinkedBlockingQueue<>();
+        private final ExecutorService executores;
+        private final Thread despachante;
+        private final AtomicLong lotes = new AtomicLong();
+        private final AtomicLong executados = new AtomicLong();
+        private final AtomicLong rejeitados = new AtomicLong();
+        private volatile boolean fechado;
+
+        ServicoKernels(MotorParalelo motor, int capacidadeFila, int maxEmVoo, int tamanhoMaximoLote,
+                long esperaAdmissao, TimeUnit unidade) {
+            if (capacidadeFila < 1 || maxEmVoo < 1 || tamanhoMaximoLote < 1) {
+                throw new IllegalArgumentException("Capacidade, lotes em voo e tamanho do lote devem ser >= 1");
+            }
+            this.motor = motor;
+            this.tamanhoMaximoLote = tamanhoMaximoLote;
+            this.esperaAdmissao = unidade.toNanos(esperaAdmissao);
+            this.admissao = new Semaphore(capacidadeFila);
+            this.execucao = new Semaphore(maxEmVoo);
+            this.executores = Executors.newFixedThreadPool(maxEmVoo);
+            this.despachante = new Thread(this::despachar, "servico-despachante");
+            this.despachante.setDaemon(true);
+            this.despachante.start();
+        }
+
+        <E, R extends Resultado> CompletableFuture<R> submeter(Kernel<E, R> kernel, E entrada) {
+            if (fechado) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Serviço fechado"));
+            }
+            try {
+                if (!admissao.tryAcquire(esperaAdmissao, TimeUnit.NANOSECONDS)) {
+                    rejeitados.incrementAndGet();
+                    return CompletableFuture.failedFuture(new RejectedExecutionException("Fila cheia"));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(e);
+            }
+            Pedido<E, R> pedido;
+            try {
+                pedido = new Pedido<>(kernel, entrada);
+            } catch (RuntimeException e) {
+                // Entrada inválida para chaveLote: falha só este pedido
+                admissao.release();
+                return CompletableFuture.failedFuture(e);
+            }
+            fila.add(pedido);
+            // Fechado entre a verificação e o add: o pedido não será despachado
+            if (fechado && fila.remove(pedido)) {
+                admissao.release();
+                pedido.futuro.completeExceptionally(new RejectedExecutionException("Serviço fechado"));
+            }
+            return pedido.futuro;
+        }
+
+        long getLotes() {
+            return lotes.get();
+        }
+
+        long getExecutados() {
+            return executados.get();
+        }
+
+        long getRejeitados() {
+            return rejeitados.get();
+        }
+
+        // Retira o pedido mais antigo e junta a ele os compatíveis que estão na fila
+        private void despachar() {
+            try {
+                while (!fechado) {
+                    execucao.acquire();
+                    Pedido<?, ?> primeiro;
+                    try {
+                        primeiro = fila.take();
+                    } catch (InterruptedException e) {
+                        execucao.release();
+                        throw e;
+                    }
+                    List<Pedido<?, ?>> lote = new ArrayList<>();
+                    lote.add(primeiro);
+                    for (Iterator<Pedido<?, ?>> it = fila.iterator(); it.hasNext() && lote.size() < tamanhoMaximoLote; ) {
+                        Pedido<?, ?> pedido = it.next();
+                        if (primeiro.compativel(pedido)) {
+                            it.remove();
+                            lote.add(pedido);
+                        }
+                    }
+                    try {
+                        executores.execute(() -> executarLote(lote));
+                    } catch (RuntimeException | Error e) {
+                        // Executor recusou o lote: falha os pedidos e devolve as permissões
+                        execucao.release();
+                        admissao.release(lote.size());
+                        for (Pedido<?, ?> pedido : lote) pedido.futuro.completeExceptionally(e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // close(): encerra o despachante
+            }
+        }
+
+        // O lote só contém pedidos do mesmo kernel (e portanto dos mesmos tipos)
+        @SuppressWarnings("unchecked")
+        private <E, R extends Resultado> void executarLote(List<Pedido<?, ?>> lote) {
+            List<Pedido<E, R>> pedidos = (List<Pedido<E, R>>) (List<?>) lote;
+            Kernel<E, R> kernel = pedidos.get(0).kernel;
+            List<R> resultados = null;
+            Throwable erro = null;
+            try {
+                if (pedidos.size() == 1) {
+                    resultados = List.of(kernel.executar(pedidos.get(0).entrada, motor));
+                } else {
+                    List<E> entradas = new ArrayList<>(pedidos.size());
+                    for (Pedido<E, R> pedido : pedidos) entradas.add(pedido.entrada);
+                    resultados = kernel.executarLote(entradas, motor);
+                }
+            } catch (RuntimeException | Error e) {
+                erro = e;
+            } finally {
+                lotes.incrementAndGet();
+                executados.addAndGet(pedidos.size());
+                execucao.release();
+                admissao.release(pedidos.size());
+            }
+            for (int i = 0; i < pedidos.size(); i++) {
+                if (erro != null) {
+                    pedidos.get(i).futuro.completeExceptionally(erro);
+                } else {
+                    pedidos.get(i).futuro.complete(resultados.get(i));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (fechado) return;
+            fechado = true;
+            despachante.interrupt();
+            try {
+                // O despachante precisa parar antes do shutdown, senão o lote
+                // que ele estiver montando seria recusado pelo executor
+                despachante.join();
+                executores.shutdown();
+                executores.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                // Interrompido esperando o despachante: lotes recusados a partir
+                // daqui são falhados pelo próprio despachante
+                executores.shutdown();
+                Thread.currentThread().interrupt();
+            }
+            for (Pedido<?, ?> pedido; (pedido = fila.poll()) != null; ) {
+                pedido.futuro.completeExceptionally(new RejectedExecutionException("Serviço fechado"));
+            }
+        }
+
+        // Kernels dos exercícios expostos ao serviço
+
+        static final Kernel<double[], Exercicio4.ResultadoMomentos> MOMENTOS = Exercicio4::calcularPassagemUnica;
+
+        static final Kernel<int[][], Exercicio7.ResultadoFiltro> FILTRO = Exercicio7::aplicarFiltroParalelo;
+
+        static final class PedidoGemv {
+            final Exercicio5.MatrizDensa matriz;
+            final double[] vetor;
+
+            PedidoGemv(Exercicio5.MatrizDensa matriz, double[] vetor) {
+                Exercicio5.validarVetor(matriz, vetor);
+                this.matriz = matriz;
+                this.vetor = vetor;
+            }
+        }
+
+        // Vetores sobre a mesma matriz (mesma instância) viram uma multiplicação em
+        // lote: cada tile de A é lido uma vez para todos os vetores do lote
+        static final Kernel<PedidoGemv, Exercicio5.ResultadoMultiplicacao> GEMV = new Kernel<>() {
+            @Override
+            public Exercicio5.ResultadoMultiplicacao executar(PedidoGemv pedido, MotorParalelo motor) {
+                return Exercicio5.multiplicarParalelo(pedido.matriz, pedido.vetor, motor);
+            }
+
+            @Override
+            public Object chaveLote(PedidoGemv pedido) {
+                return pedido.matriz;
+            }
+
+            @Override
+            public List<Exercicio5.ResultadoMultiplicacao> executarLote(List<PedidoGemv> pedidos, MotorParalelo motor) {
+                Exercicio5.MatrizDensa matriz = pedidos.get(0).matriz;
+                Exercicio5.MatrizDensa vetores = new Exercicio5.MatrizDensa(pedidos.size(), matriz.colunas);
+                for (int v = 0; v < pedidos.size(); v++) {
+                    System.arraycopy(pedidos.get(v).vetor, 0, vetores.dados, v * matriz.colunas, matriz.colunas);
+                }
+                Exercicio5.ResultadoLote lote = Exercicio5.multiplicarLote(matriz, vetores, motor);
+                List<Exercicio5.ResultadoMultiplicacao> resultados = new ArrayList<>(pedidos.size());
+                for (int v = 0; v < pedidos.size(); v++) {
+                    resultados.add(new Exercicio5.ResultadoMultiplicacao(Arrays.copyOfRange(lote.resultado.dados,
+                            v * matriz.linhas, (v + 1) * matriz.linhas), lote.tempo));
+                }
+                return resultados;
+            }
+        };
+
+        // Contagem de primos em [inicio, fim)
+        static final class IntervaloPrimos {
+            final int inicio;
+            final int fim;
+
+            IntervaloPrimos(int inicio, int fim) {
+                if (fim < inicio) {
+                    throw new IllegalArgumentException("Intervalo inválido: [" + inicio + ", " + fim + ")");
+                }
+                this.inicio = inicio;
+                this.fim = fim;
+            }
+        }
+
+        // Intervalos de um lote são contados juntos: os extremos de todos os pedidos
+        // cortam a união em pedaços (de no máximo um bloco do Ex. 6 dinâmico), cada
+        // número é testado uma única vez e cada pedido soma os pedaços que cobre
+        static final Kernel<IntervaloPrimos, Exercicio6.ResultadoPrimos> PRIMOS = new Kernel<>() {
+            @Override
+            public Exercicio6.ResultadoPrimos executar(IntervaloPrimos intervalo, MotorParalelo motor) {
+                return executarLote(List.of(intervalo), motor).get(0);
+            }
+
+            @Override
+            public Object chaveLote(IntervaloPrimos intervalo) {
+                return IntervaloPrimos.class;
+            }
+
+            @Override
+            public List<Exercicio6.ResultadoPrimos> executarLote(List<IntervaloPrimos> intervalos, MotorParalelo motor) {
+                long t0 = System.nanoTime();
+                int tamanhoBloco = AutoAjuste.inteiro("exercicio6.dinamico.bloco", 1000);
+
+                // Extremos distintos e quantos pedidos cobrem cada trecho entre eles
+                int[] extremos = new int[2 * intervalos.size()];
+                for (int k = 0; k < intervalos.size(); k++) {
+                    extremos[2 * k] = intervalos.get(k).inicio;
+                    extremos[2 * k + 1] = intervalos.get(k).fim;
+                }
+                Arrays.sort(extremos);
+                int distintos = 0;
+                for (int e : extremos) {
+                    if (distintos == 0 || extremos[distintos - 1] != e) extremos[distintos++] = e;
+                }
+                int[] cobertura = new int[distintos];
+                for (IntervaloPrimos intervalo : intervalos) {
+                    cobertura[Arrays.binarySearch(extremos, 0, distintos, intervalo.inicio)]++;
+                    cobertura[Arrays.binarySearch(extremos, 0, distintos, intervalo.fim)]--;
+                }
+
+                // Pedaços dos trechos cobertos, em ordem crescente
+                int numPedacos = 0;
+                for (int t = 0, cobertos = 0; t + 1 < distintos; t++) {
+                    cobertos += cobertura[t];
+                    if (cobertos > 0) numPedacos += (extremos[t + 1] - extremos[t] + tamanhoBloco - 1) / tamanhoBloco;
+                }
+                int[] inicioPedaco = new int[numPedacos + 1];
+                int[] fimPedaco = new int[numPedacos];
+                for (int t = 0, cobertos = 0, p = 0; t + 1 < distintos; t++) {
+                    cobertos += cobertura[t];
+                    if (cobertos == 0) continue;
+                    for (int a = extremos[t]; a < extremos[t + 1]; a += Math.min(tamanhoBloco, extremos[t + 1] - a), p++) {
+                        inicioPedaco[p] = a;
+                        fimPedaco[p] = a + Math.min(tamanhoBloco, extremos[t + 1] - a);
+                    }
+                }
+                inicioPedaco[numPedacos] = Integer.MAX_VALUE;
+
+                long[] acumulado = new long[numPedacos + 1];
+                motor.paraCada(0, numPedacos, numPedacos, (bloco, primeiro, ultimo) -> {
+                    for (int p = primeiro; p < ultimo; p++) {
+                        acumulado[p + 1] = Exercicio6.contarIntervalo(inicioPedaco[p], fimPedaco[p]);
+                    }
+                });
+                for (int p = 0; p < numPedacos; p++) acumulado[p + 1] += acumulado[p];
+
+                long tempo = System.nanoTime() - t0;
+                List<Exercicio6.ResultadoPrimos> resultados = new ArrayList<>(intervalos.size());
+                for (IntervaloPrimos intervalo : intervalos) {
+                    long count = intervalo.fim == intervalo.inicio ? 0
+                            : acumulado[primeiroPedaco(inicioPedaco, intervalo.fim)]
+                                    - acumulado[primeiroPedaco(inicioPedaco, intervalo.inicio)];
+                    resultados.add(new Exercicio6.ResultadoPrimos(count, tempo));
+                }
+                return resultados;
+            }
+
+            // Índice do primeiro pedaço que começa em valor ou depois
+            private int primeiroPedaco(int[] inicioPedaco, int valor) {
+                int posicao = Arrays.binarySearch(inicioPedaco, valor);
+                return posicao >= 0 ? posicao : -posicao - 1;
+            }
+        };
+
+        // Operação de um cliente do gerador de carga; false = pedido rejeitado
+        interface Operacao {
+            boolean executar(SplittableRandom random);
+        }
+
+        static class ResultadoCarga extends Resultado {
+            long concluidos;
+            long rejeitados;
+            long falhas;
+            long[] latencias;
+
+            ResultadoCarga(long[] latencias, long rejeitados, long falhas, long tempo) {
+                super(tempo);
+                this.latencias = latencias;
+                this.concluidos = latencias.length;
+                this.rejeitados = rejeitados;
+                this.falhas = falhas;
+            }
+
+            double vazao() {
+                return concluidos / (tempo / 1e9);
+            }
+
+            // Latência do percentil (0 a 100) em microssegundos
+            double percentil(double p) {
+                if (latencias.length == 0) return Double.NaN;
+                int indice = (int) Math.ceil(p / 100 * latencias.length) - 1;
+                return latencias[Math.max(0, Math.min(indice, latencias.length - 1))] / 1_000.0;
+            }
+        }
+
+        // Clientes em laço fechado executam a operação até o prazo
+        static ResultadoCarga gerarCarga(int clientes, long duracaoMs, Operacao operacao) throws InterruptedException {
+            long[][] latencias = new long[clientes][];
+            int[] quantidades = new int[clientes];
+            long[] rejeitadosPorCliente = new long[clientes];
+            long[] falhasPorCliente = new long[clientes];
+            Thread[] threads = new Thread[clientes];
+            long inicio = System.nanoTime();
+            long prazo = inicio + duracaoMs * 1_000_000;
+            for (int c = 0; c < clientes; c++) {
+                int cliente = c;
+                threads[c] = new Thread(() -> {
+                    SplittableRandom random = Dados.fluxo(7, cliente);
+                    long[] minhas = new long[1024];
+                    int n = 0;
+                    long rejeitados = 0;
+                    long falhas = 0;
+                    try {
+                        for (long agora = System.nanoTime(); agora < prazo; ) {
+                            boolean aceito;
+                            try {
+                                aceito = operacao.executar(random);
+                            } catch (RuntimeException e) {
+                                // Falha de um pedido não derruba o cliente
+                                falhas++;
+                                agora = System.nanoTime();
+                                continue;
+                            }
+                            long fim = System.nanoTime();
+                            if (aceito) {
+                                if (n == minhas.length) minhas = Arrays.copyOf(minhas, 2 * n);
+                                minhas[n++] = fim - agora;
+                            } else {
+                                rejeitados++;
+                            }
+                            agora = fim;
+                        }
+                    } finally {
+                        // Publicado mesmo se o cliente morrer: a agregação nunca vê null
+                        latencias[cliente] = minhas;
+                        quantidades[cliente] = n;
+                        rejeitadosPorCliente[cliente] = rejeitados;
+                        falhasPorCliente[cliente] = falhas;
+                    }
+                }, "cliente-" + c);
+                threads[c].start();
+            }
+            for (Thread thread : threads) thread.join();
+            long tempo = System.nanoTime() - inicio;
+
+            int total = 0;
+            long rejeitados = 0;
+            long falhas = 0;
+            for (int c = 0; c < clientes; c++) {
+                total += quantidades[c];
+                rejeitados += rejeitadosPorCliente[c];
+                falhas += falhasPorCliente[c];
+            }
+            long[] todas = new long[total];
+            for (int c = 0, k = 0; c < clientes; k += quantidades[c], c++) {
+                System.arraycopy(latencias[c], 0, todas, k, quantidades[c]);
+            }
+            Arrays.sort(todas);
+            return new ResultadoCarga(todas, rejeitados, falhas, tempo);
+        }
+
+        private static void imprimirCarga(String nome, ResultadoCarga carga) {
+            System.out.printf("%s: Vazão=%.0f pedidos/s, p50=%.1f µs, p99=%.1f µs, p99.9=%.1f µs, " +
+                    "Máx=%.1f µs, Rejeitados=%d, Falhas=%d\n", nome, carga.vazao(), carga.percentil(50),
+                    carga.percentil(99), carga.percentil(99.9), carga.percentil(100), carga.rejeitados, carga.falhas);
+        }
+
+        // Carga de pedidos pequenos (GEMV sobre a mesma matriz e contagens de primos
+        // em faixas repetidas): chamadas bloqueantes diretas x serviço com lotes
+        static void executarCarga() throws InterruptedException, IOException {
+            System.out.println("=== SERVIÇO DE KERNELS: CARGA CONCORRENTE ===\n");
+
+            int clientes = 32;
+            long duracaoMs = 2000;
+            int n = 512;
+            Exercicio5.MatrizDensa matriz = Exercicio5.MatrizDensa.deJagged(Dados.matriz(n, n, 47));
+            double[][] vetores = Dados.matriz(64, n, 48);
+            MotorParalelo motor = MotorParalelo.padrao();
+            System.out.printf("%d clientes, %d ms, 70%% GEMV %d×%d e 30%% contagem de primos em faixas de 20.000\n",
+                    clientes, duracaoMs, n, n);
+
+            ResultadoCarga direta = gerarCarga(clientes, duracaoMs, random -> {
+                if (random.nextInt(10) < 7) {
+                    Exercicio5.multiplicarParalelo(matriz, vetores[random.nextInt(vetores.length)], motor);
+                } else {
+                    int inicio = 100_000 * random.nextInt(10);
+                    PRIMOS.executar(new IntervaloPrimos(inicio, inicio + 20_000), motor);
+                }
+                return true;
+            });
+            imprimirCarga("Chamadas diretas", direta);
+
+            try (ServicoKernels servico = new ServicoKernels(motor, 256, 2, 32, 10, TimeUnit.MILLISECONDS)) {
+                ResultadoCarga servida = gerarCarga(clientes, duracaoMs, random -> {
+                    CompletableFuture<? extends Resultado> futuro;
+                    if (random.nextInt(10) < 7) {
+                        futuro = servico.submeter(GEMV,
+                                new PedidoGemv(matriz, vetores[random.nextInt(vetores.length)]));
+                    } else {
+                        int inicio = 100_000 * random.nextInt(10);
+                        futuro = servico.submeter(PRIMOS, new IntervaloPrimos(inicio, inicio + 20_000));
+                    }
+                    try {
+                        futuro.join();
+                        return true;
+                    } catch (CompletionException e) {
+                        if (e.getCause() instanceof RejectedExecutionException) return false;
+                        throw e;
+                    }
+                });
+                imprimirCarga("Serviço com lotes", servida);
+                System.out.printf("Lotes=%d, Pedidos por lote=%.2f, Speedup de vazão=%.2fx\n", servico.getLotes(),
+                        (double) servico.getExecutados() / Math.max(1, servico.getLotes()),
+                        servida.vazao() / direta.vazao());
+            }
+        }
+    }
+
     public static void main(String[] args) {
         try {
             System.out.println("EXERCÍCIOS DE PROGRAMAÇÃO PARALELA EM JAVA\n");
             System.out.println("=" .repeat(60) + "\n");
+
+            // -Dmotor.autoajuste=true mede este host antes dos exercícios
+            if (Boolean.getBoolean("motor.autoajuste")) {
+                AutoAjuste.ajustar();
+            } else if (AutoAjuste.temPerfil()) {
+                System.out.println("Usando perfil de ajuste " + AutoAjuste.caminhoPerfil() + "\n");
+            }
             
             Exercicio4.executar();
             System.out.println("\n" + "=".repeat(60) + "\n");
@@ -538,10 +5528,15 @@ public class ExerciciosParalelos {
             System.out.println("\n" + "=".repeat(60) + "\n");
             
             Exercicio7.executar();
+            System.out.println("\n" + "=".repeat(60) + "\n");
+
+            ServicoKernels.executarCarga();
             
-        } catch (InterruptedException e) {
+        } catch (InterruptedException | IOException e) {
             System.err.println("Erro na execução: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            MotorParalelo.fecharCompartilhados();
         }
     }
 }
\ No newline at end of file
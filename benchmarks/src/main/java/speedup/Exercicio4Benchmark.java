@@ -0,0 +1,69 @@
+package speedup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Média e desvio padrão: sequencial x variantes paralelas por tamanho e threads
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Dmotor.perfil=nenhum"})
+public class Exercicio4Benchmark {
+
+    @State(Scope.Benchmark)
+    public static class Entrada {
+        @Param({"1000000", "10000000"})
+        int tamanho;
+
+        double[] vetor;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+            vetor = ExerciciosParalelos.Dados.vetor(tamanho, 100, 42);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Configuracao {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        @Param({"threads", "motor", "passagemUnica", "compensado"})
+        String variante;
+
+        ExerciciosParalelos.MotorParalelo motor;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            motor = new ExerciciosParalelos.MotorParalelo(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void fechar() {
+            motor.close();
+        }
+    }
+
+    @Benchmark
+    public Object sequencial(Entrada entrada) {
+        return ExerciciosParalelos.Exercicio4.calcularSequencial(entrada.vetor);
+    }
+
+    @Benchmark
+    public Object paralelo(Entrada entrada, Configuracao config) throws InterruptedException {
+        switch (config.variante) {
+            case "threads":
+                return ExerciciosParalelos.Exercicio4.calcularParalelo(entrada.vetor, config.threads);
+            case "motor":
+                return ExerciciosParalelos.Exercicio4.calcularParalelo(entrada.vetor, config.motor);
+            case "passagemUnica":
+                return ExerciciosParalelos.Exercicio4.calcularPassagemUnica(entrada.vetor, config.motor);
+            case "compensado":
+                return ExerciciosParalelos.Exercicio4.calcularParaleloCompensado(entrada.vetor, config.motor);
+            default:
+                throw new IllegalArgumentException("Variante desconhecida: " + config.variante);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package speedup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Matriz × vetor: sequencial x variantes paralelas por tamanho e threads
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Dmotor.perfil=nenhum"})
+public class Exercicio5Benchmark {
+
+    @State(Scope.Benchmark)
+    public static class Entrada {
+        @Param({"1000", "3000"})
+        int tamanho;
+
+        double[][] matriz;
+        ExerciciosParalelos.Exercicio5.MatrizDensa matrizPlana;
+        double[] vetor;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+            matriz = ExerciciosParalelos.Dados.matriz(tamanho, tamanho, 42);
+            vetor = ExerciciosParalelos.Dados.vetor(tamanho, 1, 43);
+            matrizPlana = ExerciciosParalelos.Exercicio5.MatrizDensa.deJagged(matriz);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Configuracao {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        @Param({"threads", "motor", "plana"})
+        String variante;
+
+        ExerciciosParalelos.MotorParalelo motor;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            motor = new ExerciciosParalelos.MotorParalelo(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void fechar() {
+            motor.close();
+        }
+    }
+
+    @Benchmark
+    public Object sequencial(Entrada entrada) {
+        return ExerciciosParalelos.Exercicio5.multiplicarSequencial(entrada.matriz, entrada.vetor);
+    }
+
+    @Benchmark
+    public Object paralelo(Entrada entrada, Configuracao config) throws InterruptedException {
+        switch (config.variante) {
+            case "threads":
+                return ExerciciosParalelos.Exercicio5.multiplicarParalelo(entrada.matriz, entrada.vetor, config.threads);
+            case "motor":
+                return ExerciciosParalelos.Exercicio5.multiplicarParalelo(entrada.matriz, entrada.vetor, config.motor);
+            case "plana":
+                return ExerciciosParalelos.Exercicio5.multiplicarParalelo(entrada.matrizPlana, entrada.vetor, config.motor);
+            default:
+                throw new IllegalArgumentException("Variante desconhecida: " + config.variante);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package speedup;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Contagem de primos: sequencial x variantes paralelas por limite e threads
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Dmotor.perfil=nenhum"})
+public class Exercicio6Benchmark {
+
+    @State(Scope.Benchmark)
+    public static class Entrada {
+        @Param({"100000", "1000000"})
+        int limite;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Configuracao {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        @Param({"estatico", "dinamico", "adaptativo", "crivo"})
+        String variante;
+
+        ExerciciosParalelos.MotorParalelo motor;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            motor = new ExerciciosParalelos.MotorParalelo(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void fechar() {
+            motor.close();
+        }
+    }
+
+    @Benchmark
+    public Object sequencial(Entrada entrada) {
+        return ExerciciosParalelos.Exercicio6.contarPrimosSequencial(entrada.limite);
+    }
+
+    @Benchmark
+    public Object paralelo(Entrada entrada, Configuracao config) throws InterruptedException {
+        switch (config.variante) {
+            case "estatico":
+                return ExerciciosParalelos.Exercicio6.contarPrimosParaleloEstatico(entrada.limite, config.threads);
+            case "dinamico":
+                return ExerciciosParalelos.Exercicio6.contarPrimosParaleloDinamico(entrada.limite, config.threads);
+            case "adaptativo":
+                return ExerciciosParalelos.Exercicio6.contarPrimosParaleloAdaptativo(entrada.limite, config.motor);
+            case "crivo":
+                return ExerciciosParalelos.Exercicio6.contarPrimosCrivo(entrada.limite, config.motor);
+            default:
+                throw new IllegalArgumentException("Variante desconhecida: " + config.variante);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package speedup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Blur 3x3: sequencial x variantes paralelas por tamanho e threads
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Dmotor.perfil=nenhum"})
+public class Exercicio7Benchmark {
+
+    @State(Scope.Benchmark)
+    public static class Entrada {
+        @Param({"1000", "3000"})
+        int tamanho;
+
+        int[][] imagem;
+        ExerciciosParalelos.Exercicio7.Imagem compactada;
+        ExerciciosParalelos.Exercicio7.Imagem saida;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+            imagem = ExerciciosParalelos.Dados.imagem(tamanho, tamanho, 42);
+            compactada = ExerciciosParalelos.Exercicio7.Imagem.deMatriz(imagem);
+            saida = ExerciciosParalelos.Exercicio7.Imagem.criar(tamanho, tamanho, 1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Configuracao {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        @Param({"threads", "motor", "convolucao", "compactada"})
+        String variante;
+
+        ExerciciosParalelos.MotorParalelo motor;
+        ExerciciosParalelos.Exercicio7.KernelConvolucao caixa;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            motor = new ExerciciosParalelos.MotorParalelo(threads);
+            caixa = ExerciciosParalelos.Exercicio7.KernelConvolucao.caixa(1);
+        }
+
+        @TearDown(Level.Trial)
+        public void fechar() {
+            motor.close();
+        }
+    }
+
+    @Benchmark
+    public Object sequencial(Entrada entrada) {
+        return ExerciciosParalelos.Exercicio7.aplicarFiltroSequencial(entrada.imagem);
+    }
+
+    @Benchmark
+    public Object paralelo(Entrada entrada, Configuracao config) throws InterruptedException {
+        switch (config.variante) {
+            case "threads":
+                return ExerciciosParalelos.Exercicio7.aplicarFiltroParalelo(entrada.imagem, config.threads);
+            case "motor":
+                return ExerciciosParalelos.Exercicio7.aplicarFiltroParalelo(entrada.imagem, config.motor);
+            case "convolucao":
+                return ExerciciosParalelos.Exercicio7.aplicarConvolucaoParalelo(entrada.imagem, config.caixa, config.motor);
+            case "compactada":
+                return ExerciciosParalelos.Exercicio7.aplicarFiltroParalelo(entrada.compactada, entrada.saida, config.motor);
+            default:
+                throw new IllegalArgumentException("Variante desconhecida: " + config.variante);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package speedup;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+// Executa os benchmarks com o profiler de GC, grava o JSON do JMH e imprime
+// percentis de latência, alocação por operação e eficiência de escalabilidade
+// (vazão com N threads / (N × vazão com 1 thread) da mesma variante e tamanho).
+// Uso: java -cp benchmarks/target/benchmarks.jar speedup.RelatorioBenchmarks [opções do JMH]
+public class RelatorioBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions linha = new CommandLineOptions(args);
+        String arquivo = linha.getResult().orElse("resultados-jmh.json");
+
+        ChainedOptionsBuilder opcoes = new OptionsBuilder()
+                .parent(linha)
+                .resultFormat(linha.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(arquivo);
+        if (linha.getIncludes().isEmpty()) {
+            opcoes.include("speedup\\..*Benchmark");
+        }
+        if (linha.getProfilers().stream().noneMatch(p -> p.getKlass().equals(GCProfiler.class.getName()))) {
+            opcoes.addProfiler(GCProfiler.class);
+        }
+        Collection<RunResult> resultados = new Runner(opcoes.build()).run();
+
+        System.out.println("\n=== LATÊNCIA E ALOCAÇÃO ===\n");
+        for (RunResult resultado : resultados) {
+            BenchmarkParams params = resultado.getParams();
+            if (!"sample".equals(params.getMode().shortLabel())) continue;
+            Statistics estatisticas = resultado.getPrimaryResult().getStatistics();
+            System.out.printf("%s: p50=%.3f ms, p90=%.3f ms, p99=%.3f ms, p99.9=%.3f ms, Alocação=%s\n",
+                    rotulo(params, true), estatisticas.getPercentile(50), estatisticas.getPercentile(90),
+                    estatisticas.getPercentile(99), estatisticas.getPercentile(99.9), alocacao(resultado));
+        }
+
+        System.out.println("\n=== EFICIÊNCIA DE ESCALABILIDADE ===\n");
+        Map<String, Double> base = new LinkedHashMap<>();
+        for (RunResult resultado : resultados) {
+            BenchmarkParams params = resultado.getParams();
+            if (params.getParam("threads") != null && "thrpt".equals(params.getMode().shortLabel())
+                    && Integer.parseInt(params.getParam("threads")) == 1) {
+                base.put(rotulo(params, false), resultado.getPrimaryResult().getScore());
+            }
+        }
+        for (RunResult resultado : resultados) {
+            BenchmarkParams params = resultado.getParams();
+            if (params.getParam("threads") == null || !"thrpt".equals(params.getMode().shortLabel())) continue;
+            Double vazaoBase = base.get(rotulo(params, false));
+            if (vazaoBase == null) continue;
+            int threads = Integer.parseInt(params.getParam("threads"));
+            double speedup = resultado.getPrimaryResult().getScore() / vazaoBase;
+            System.out.printf("%s: Vazão=%.3f ops/ms, Speedup=%.2fx, Eficiência=%.2f%%\n",
+                    rotulo(params, true), resultado.getPrimaryResult().getScore(), speedup,
+                    speedup / threads * 100);
+        }
+        System.out.println("\nResultados completos em " + arquivo);
+    }
+
+    // Nome do benchmark e parâmetros, com ou sem o número de threads
+    private static String rotulo(BenchmarkParams params, boolean comThreads) {
+        StringBuilder rotulo = new StringBuilder(params.getBenchmark().replace("speedup.", ""));
+        for (String chave : params.getParamsKeys()) {
+            if (!comThreads && chave.equals("threads")) continue;
+            rotulo.append(' ').append(chave).append('=').append(params.getParam(chave));
+        }
+        return rotulo.toString();
+    }
+
+    private static String alocacao(RunResult resultado) {
+        for (Map.Entry<String, Result> secundario : resultado.getSecondaryResults().entrySet()) {
+            if (secundario.getKey().endsWith("gc.alloc.rate.norm")) {
+                return String.format("%.0f B/op", secundario.getValue().getScore());
+            }
+        }
+        return "n/d";
+    }
+}
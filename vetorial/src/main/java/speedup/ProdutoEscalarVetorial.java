@@ -0,0 +1,36 @@
+package speedup;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Produto escalar da GEMV com a Vector API. As 4 pistas de um vetor de 256 bits
+// são os 4 acumuladores de Exercicio5.produtoEscalarEscalar (multiplica e soma
+// separados, sem FMA), então o resultado é idêntico bit a bit ao escalar.
+// Carregado por reflexão em Exercicio5.
+final class ProdutoEscalarVetorial implements ExerciciosParalelos.Exercicio5.NucleoProdutoEscalar {
+    private static final VectorSpecies<Double> ESPECIE = DoubleVector.SPECIES_256;
+
+    ProdutoEscalarVetorial() {
+        // Sem vetores nativos de 256 bits a Vector API cai em código escalar mais lento
+        if (DoubleVector.SPECIES_PREFERRED.vectorBitSize() < ESPECIE.vectorBitSize()) {
+            throw new UnsupportedOperationException("Hardware sem vetores de " + ESPECIE.vectorBitSize() + " bits");
+        }
+    }
+
+    @Override
+    public double produtoEscalar(double[] a, int inicioA, double[] x, int inicioX, int n) {
+        DoubleVector s = DoubleVector.zero(ESPECIE);
+        int j = 0;
+        for (int limite = ESPECIE.loopBound(n); j < limite; j += ESPECIE.length()) {
+            DoubleVector va = DoubleVector.fromArray(ESPECIE, a, inicioA + j);
+            DoubleVector vx = DoubleVector.fromArray(ESPECIE, x, inicioX + j);
+            s = s.add(va.mul(vx));
+        }
+        double[] somas = s.toArray();
+        double s0 = somas[0];
+        for (; j < n; j++) {
+            s0 += a[inicioA + j] * x[inicioX + j];
+        }
+        return (s0 + somas[1]) + (somas[2] + somas[3]);
+    }
+}
@@ -0,0 +1,67 @@
+package speedup;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Núcleo da SomaCompensada com a Vector API. As 4 pistas de um vetor de 256 bits
+// são os 4 acumuladores do laço escalar (a pista k soma os elementos j + k) e
+// fazem as mesmas operações na mesma ordem, então o resultado é idêntico bit a
+// bit ao escalar. Carregado por reflexão em SomaCompensada.
+final class SomaCompensadaVetorial implements ExerciciosParalelos.Exercicio4.SomaCompensada.Nucleo {
+    private static final VectorSpecies<Double> ESPECIE = DoubleVector.SPECIES_256;
+
+    SomaCompensadaVetorial() {
+        // Sem vetores nativos de 256 bits a Vector API cai em código escalar mais lento
+        if (DoubleVector.SPECIES_PREFERRED.vectorBitSize() < ESPECIE.vectorBitSize()) {
+            throw new UnsupportedOperationException("Hardware sem vetores de " + ESPECIE.vectorBitSize() + " bits");
+        }
+    }
+
+    @Override
+    public double somar(double[] vetor, int inicio, int fim) {
+        DoubleVector s = DoubleVector.zero(ESPECIE);
+        DoubleVector c = DoubleVector.zero(ESPECIE);
+        int j = inicio;
+        for (int limite = inicio + ESPECIE.loopBound(fim - inicio); j < limite; j += ESPECIE.length()) {
+            DoubleVector y = DoubleVector.fromArray(ESPECIE, vetor, j).sub(c);
+            DoubleVector t = s.add(y);
+            c = t.sub(s).sub(y);
+            s = t;
+        }
+        double[] somas = s.toArray();
+        double[] compensacoes = c.toArray();
+        double s0 = somas[0], c0 = compensacoes[0];
+        for (; j < fim; j++) {
+            double y0 = vetor[j] - c0;
+            double t0 = s0 + y0;
+            c0 = (t0 - s0) - y0;
+            s0 = t0;
+        }
+        return ((s0 - c0) + (somas[1] - compensacoes[1])) + ((somas[2] - compensacoes[2]) + (somas[3] - compensacoes[3]));
+    }
+
+    @Override
+    public double somarQuadradosDesvios(double[] vetor, int inicio, int fim, double media) {
+        DoubleVector s = DoubleVector.zero(ESPECIE);
+        DoubleVector c = DoubleVector.zero(ESPECIE);
+        int j = inicio;
+        for (int limite = inicio + ESPECIE.loopBound(fim - inicio); j < limite; j += ESPECIE.length()) {
+            DoubleVector d = DoubleVector.fromArray(ESPECIE, vetor, j).sub(media);
+            DoubleVector y = d.mul(d).sub(c);
+            DoubleVector t = s.add(y);
+            c = t.sub(s).sub(y);
+            s = t;
+        }
+        double[] somas = s.toArray();
+        double[] compensacoes = c.toArray();
+        double s0 = somas[0], c0 = compensacoes[0];
+        for (; j < fim; j++) {
+            double d0 = vetor[j] - media;
+            double y0 = d0 * d0 - c0;
+            double t0 = s0 + y0;
+            c0 = (t0 - s0) - y0;
+            s0 = t0;
+        }
+        return ((s0 - c0) + (somas[1] - compensacoes[1])) + ((somas[2] - compensacoes[2]) + (somas[3] - compensacoes[3]));
+    }
+}